@@ -0,0 +1,273 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 为标注了@ExcelModel、@ExcelColumn、@MultiColumn的模型类生成字段访问器，
+ * 生成类与模型类同包，类名为模型类名加_MyExcelAccessors后缀，运行期存在时替代反射读写字段
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+@SupportedAnnotationTypes({
+        ExcelModelProcessor.EXCEL_MODEL,
+        ExcelModelProcessor.EXCEL_COLUMN,
+        ExcelModelProcessor.MULTI_COLUMN
+})
+public class ExcelModelProcessor extends AbstractProcessor {
+
+    static final String EXCEL_MODEL = "com.github.liaochong.myexcel.core.annotation.ExcelModel";
+
+    static final String EXCEL_COLUMN = "com.github.liaochong.myexcel.core.annotation.ExcelColumn";
+
+    static final String MULTI_COLUMN = "com.github.liaochong.myexcel.core.annotation.MultiColumn";
+
+    private static final String SUFFIX = "_MyExcelAccessors";
+
+    private static final String FIELD_ACCESSOR = "com.github.liaochong.myexcel.utils.FieldAccessor";
+
+    private static final String GENERATED_ACCESSORS = "com.github.liaochong.myexcel.core.reflect.GeneratedAccessors";
+    /**
+     * 已生成的类，避免多轮处理时重复生成
+     */
+    private final Set<String> generated = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Set<TypeElement> compiledTypes = new HashSet<>();
+        for (Element element : roundEnv.getRootElements()) {
+            collectTypes(element, compiledTypes);
+        }
+        Set<TypeElement> modelTypes = new LinkedHashSet<>();
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() == ElementKind.CLASS) {
+                    modelTypes.add((TypeElement) element);
+                } else if (element.getKind() == ElementKind.FIELD) {
+                    modelTypes.add((TypeElement) element.getEnclosingElement());
+                }
+            }
+        }
+        for (TypeElement modelType : modelTypes) {
+            // 父类字段的声明类为父类，父类同在本次编译中时一并生成
+            TypeElement type = modelType;
+            while (type != null && compiledTypes.contains(type)) {
+                generate(type);
+                TypeMirror superclass = type.getSuperclass();
+                type = superclass.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+            }
+        }
+        return false;
+    }
+
+    private void collectTypes(Element element, Set<TypeElement> types) {
+        if (element.getKind() != ElementKind.CLASS) {
+            return;
+        }
+        types.add((TypeElement) element);
+        for (TypeElement nested : ElementFilter.typesIn(element.getEnclosedElements())) {
+            collectTypes(nested, types);
+        }
+    }
+
+    private void generate(TypeElement type) {
+        String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        if (!generated.add(binaryName) || !isGenerable(type)) {
+            return;
+        }
+        PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(type);
+        String packageName = packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+        String className = packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1);
+        String generatedName = className + SUFFIX;
+        String modelName = processingEnv.getTypeUtils().erasure(type.asType()).toString();
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("/**\n")
+                .append(" * Generated by myexcel-processor, do not edit.\n")
+                .append(" */\n")
+                .append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n")
+                .append("public final class ").append(generatedName).append(" implements ").append(GENERATED_ACCESSORS).append(" {\n\n")
+                .append("    @Override\n")
+                .append("    public ").append(FIELD_ACCESSOR).append(" get(String fieldName) {\n")
+                .append("        switch (fieldName) {\n");
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            if (field.getModifiers().contains(Modifier.STATIC)) {
+                continue;
+            }
+            String accessor = accessorOf(type, modelName, packageName, field);
+            if (accessor == null) {
+                continue;
+            }
+            source.append("            case \"").append(field.getSimpleName()).append("\":\n")
+                    .append("                return ").append(accessor).append(";\n");
+        }
+        source.append("            default:\n")
+                .append("                return null;\n")
+                .append("        }\n")
+                .append("    }\n")
+                .append("}\n");
+
+        String fileName = packageName.isEmpty() ? generatedName : packageName + "." + generatedName;
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(fileName, type);
+            try (Writer writer = file.openWriter()) {
+                writer.write(source.toString());
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to generate " + fileName + ": " + e.getMessage(), type);
+        }
+    }
+
+    /**
+     * 生成类位于模型类同包，模型类及其外部类不能为私有，且不能为局部类或匿名类
+     */
+    private boolean isGenerable(TypeElement type) {
+        for (Element e = type; e.getKind() != ElementKind.PACKAGE; e = e.getEnclosingElement()) {
+            if (!(e instanceof TypeElement)) {
+                return false;
+            }
+            TypeElement typeElement = (TypeElement) e;
+            if (typeElement.getNestingKind() == NestingKind.LOCAL || typeElement.getNestingKind() == NestingKind.ANONYMOUS
+                    || typeElement.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String accessorOf(TypeElement type, String modelName, String packageName, VariableElement field) {
+        TypeMirror fieldType = field.asType();
+        if (!isAccessibleType(fieldType, packageName)) {
+            return null;
+        }
+        String fieldName = field.getSimpleName().toString();
+        String target = "((" + modelName + ") o)";
+        String getter = null;
+        String setter = null;
+        String capitalized = Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            if (method.getModifiers().contains(Modifier.STATIC) || !isAccessible(method, packageName)) {
+                continue;
+            }
+            String methodName = method.getSimpleName().toString();
+            if (getter == null && method.getParameters().isEmpty()
+                    && processingEnv.getTypeUtils().isSameType(method.getReturnType(), fieldType)
+                    && (methodName.equals("get" + capitalized) || (fieldType.getKind() == TypeKind.BOOLEAN && methodName.equals("is" + capitalized)))) {
+                getter = target + "." + methodName + "()";
+            } else if (setter == null && method.getParameters().size() == 1 && methodName.equals("set" + capitalized)
+                    && processingEnv.getTypeUtils().isSameType(method.getParameters().get(0).asType(), fieldType)) {
+                setter = target + "." + methodName + "(%s)";
+            }
+        }
+        boolean fieldAccessible = !field.getModifiers().contains(Modifier.PRIVATE);
+        if (getter == null) {
+            if (!fieldAccessible) {
+                return null;
+            }
+            getter = target + "." + fieldName;
+        }
+        if (setter == null && fieldAccessible && !field.getModifiers().contains(Modifier.FINAL)) {
+            setter = target + "." + fieldName + " = %s";
+        }
+        String erasure = processingEnv.getTypeUtils().erasure(fieldType).toString();
+        switch (fieldType.getKind()) {
+            case INT:
+                return FIELD_ACCESSOR + ".ofInt(o -> " + getter + ", " + setterLambda(setter, "v") + ")";
+            case LONG:
+                return FIELD_ACCESSOR + ".ofLong(o -> " + getter + ", " + setterLambda(setter, "v") + ")";
+            case DOUBLE:
+                return FIELD_ACCESSOR + ".ofDouble(o -> " + getter + ", " + setterLambda(setter, "v") + ")";
+            case BOOLEAN:
+                return FIELD_ACCESSOR + ".ofBoolean(o -> " + getter + ", " + setterLambda(setter, "v") + ")";
+            default:
+                String castType = fieldType.getKind().isPrimitive()
+                        ? processingEnv.getTypeUtils().boxedClass((PrimitiveType) fieldType).getQualifiedName().toString()
+                        : erasure;
+                return FIELD_ACCESSOR + ".of(" + erasure + ".class, o -> " + getter + ", "
+                        + setterLambda(setter, "(" + castType + ") v") + ")";
+        }
+    }
+
+    private static String setterLambda(String setter, String value) {
+        return setter == null ? "null" : "(o, v) -> " + String.format(setter, value);
+    }
+
+    private boolean isAccessible(Element element, String packageName) {
+        if (element.getModifiers().contains(Modifier.PUBLIC)) {
+            return true;
+        }
+        if (element.getModifiers().contains(Modifier.PRIVATE)) {
+            return false;
+        }
+        PackageElement elementPackage = processingEnv.getElementUtils().getPackageOf(element);
+        return elementPackage.getQualifiedName().toString().equals(packageName);
+    }
+
+    /**
+     * 字段类型需在生成类中可见，否则无法转型
+     */
+    private boolean isAccessibleType(TypeMirror type, String packageName) {
+        TypeMirror erasure = processingEnv.getTypeUtils().erasure(type);
+        while (erasure.getKind() == TypeKind.ARRAY) {
+            erasure = ((ArrayType) erasure).getComponentType();
+        }
+        if (erasure.getKind().isPrimitive()) {
+            return true;
+        }
+        if (erasure.getKind() != TypeKind.DECLARED) {
+            return false;
+        }
+        for (Element e = ((DeclaredType) erasure).asElement(); e instanceof TypeElement; e = e.getEnclosingElement()) {
+            if (!isAccessible(e, packageName)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
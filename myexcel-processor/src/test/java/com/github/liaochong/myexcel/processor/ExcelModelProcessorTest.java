@@ -0,0 +1,154 @@
+package com.github.liaochong.myexcel.processor;
+
+import com.github.liaochong.myexcel.core.DefaultExcelBuilder;
+import com.github.liaochong.myexcel.core.SaxExcelReader;
+import com.github.liaochong.myexcel.utils.FieldAccessor;
+import com.github.liaochong.myexcel.utils.FieldDefinition;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.JavaCompiler;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.lang.reflect.Field;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author liaochong
+ * @version 1.0
+ */
+class ExcelModelProcessorTest {
+
+    private static final String MODEL_NAME = "com.github.liaochong.myexcel.processor.sample.Goods";
+
+    private static final String MODEL_SOURCE = "package com.github.liaochong.myexcel.processor.sample;\n"
+            + "\n"
+            + "import com.github.liaochong.myexcel.core.annotation.ExcelColumn;\n"
+            + "import com.github.liaochong.myexcel.core.annotation.ExcelModel;\n"
+            + "\n"
+            + "@ExcelModel\n"
+            + "public class Goods {\n"
+            + "    @ExcelColumn(title = \"名称\")\n"
+            + "    private String name;\n"
+            + "    @ExcelColumn(title = \"数量\")\n"
+            + "    private int count;\n"
+            + "    @ExcelColumn(title = \"单价\")\n"
+            + "    double price;\n"
+            + "    @ExcelColumn(title = \"上架\")\n"
+            + "    private boolean onSale;\n"
+            + "    @ExcelColumn(title = \"编码\")\n"
+            + "    private String code;\n"
+            + "\n"
+            + "    public String getName() { return name; }\n"
+            + "    public void setName(String name) { this.name = name; }\n"
+            + "    public int getCount() { return count; }\n"
+            + "    public void setCount(int count) { this.count = count; }\n"
+            + "    public boolean isOnSale() { return onSale; }\n"
+            + "    public void setOnSale(boolean onSale) { this.onSale = onSale; }\n"
+            + "    public String getCode() { return code; }\n"
+            + "}\n";
+
+    @TempDir
+    static Path outputDir;
+
+    private static Class<?> modelClass;
+
+    @BeforeAll
+    static void compile() throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        String classpath = new File(FieldAccessor.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+        SimpleJavaFileObject source = new SimpleJavaFileObject(URI.create("string:///" + MODEL_NAME.replace('.', '/') + ".java"),
+                SimpleJavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return MODEL_SOURCE;
+            }
+        };
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null)) {
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null,
+                    Arrays.asList("-classpath", classpath, "-d", outputDir.toString(), "-s", outputDir.toString()),
+                    null, Collections.singletonList(source));
+            task.setProcessors(Collections.singletonList(new ExcelModelProcessor()));
+            Assertions.assertTrue(task.call());
+        }
+        Assertions.assertTrue(Files.exists(outputDir.resolve(MODEL_NAME.replace('.', '/') + "_MyExcelAccessors.class")));
+        URLClassLoader classLoader = new URLClassLoader(new URL[]{outputDir.toUri().toURL()}, ExcelModelProcessorTest.class.getClassLoader());
+        modelClass = classLoader.loadClass(MODEL_NAME);
+    }
+
+    @Test
+    void generatedAccessors() throws Exception {
+        Object goods = modelClass.newInstance();
+        for (String fieldName : Arrays.asList("name", "count", "price", "onSale", "code")) {
+            Assertions.assertNotNull(FieldAccessor.ofGenerated(modelClass.getDeclaredField(fieldName)), fieldName);
+        }
+        FieldDefinition name = new FieldDefinition(modelClass.getDeclaredField("name"));
+        Assertions.assertEquals(modelClass.getMethod("getName"), name.getGetMethod());
+        Assertions.assertEquals(modelClass.getMethod("setName", String.class), name.getSetMethod());
+        name.getAccessor().set(goods, "a");
+        Assertions.assertEquals("a", name.getAccessor().get(goods));
+
+        FieldAccessor count = new FieldDefinition(modelClass.getDeclaredField("count")).getAccessor();
+        count.setInt(goods, 2);
+        Assertions.assertEquals(2, count.get(goods));
+
+        FieldAccessor price = new FieldDefinition(modelClass.getDeclaredField("price")).getAccessor();
+        price.setDouble(goods, 1.5D);
+        Assertions.assertEquals(1.5D, price.get(goods));
+
+        FieldAccessor onSale = new FieldDefinition(modelClass.getDeclaredField("onSale")).getAccessor();
+        onSale.setBoolean(goods, true);
+        Assertions.assertEquals(true, onSale.get(goods));
+    }
+
+    @Test
+    void readOnlyField() throws Exception {
+        Field field = modelClass.getDeclaredField("code");
+        FieldDefinition code = new FieldDefinition(field);
+        Object goods = modelClass.newInstance();
+        code.getAccessor().set(goods, "c");
+        Assertions.assertEquals("c", code.getAccessor().get(goods));
+        Assertions.assertEquals("c", modelClass.getMethod("getCode").invoke(goods));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void writeAndRead() throws Exception {
+        Object goods = modelClass.newInstance();
+        FieldAccessor.ofGenerated(modelClass.getDeclaredField("name")).set(goods, "apple");
+        FieldAccessor.ofGenerated(modelClass.getDeclaredField("count")).setInt(goods, 3);
+        FieldAccessor.ofGenerated(modelClass.getDeclaredField("price")).setDouble(goods, 2.5D);
+        FieldAccessor.ofGenerated(modelClass.getDeclaredField("onSale")).setBoolean(goods, true);
+        new FieldDefinition(modelClass.getDeclaredField("code")).getAccessor().set(goods, "A01");
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (Workbook workbook = DefaultExcelBuilder.of((Class<Object>) modelClass).build(Collections.singletonList(goods))) {
+            workbook.write(outputStream);
+        }
+        List<Object> result = SaxExcelReader.of((Class<Object>) modelClass)
+                .rowFilter(row -> row.getRowNum() > 0)
+                .read(new ByteArrayInputStream(outputStream.toByteArray()));
+
+        Assertions.assertEquals(1, result.size());
+        Object read = result.get(0);
+        Assertions.assertEquals("apple", modelClass.getMethod("getName").invoke(read));
+        Assertions.assertEquals(3, modelClass.getMethod("getCount").invoke(read));
+        Assertions.assertEquals(2.5D, FieldAccessor.ofGenerated(modelClass.getDeclaredField("price")).get(read));
+        Assertions.assertEquals(true, modelClass.getMethod("isOnSale").invoke(read));
+        Assertions.assertEquals("A01", modelClass.getMethod("getCode").invoke(read));
+    }
+}
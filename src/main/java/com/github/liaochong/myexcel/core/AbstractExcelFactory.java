@@ -20,6 +20,7 @@ import com.github.liaochong.myexcel.core.parser.ContentTypeEnum;
 import com.github.liaochong.myexcel.core.parser.DropDownLists;
 import com.github.liaochong.myexcel.core.parser.HtmlTableParser;
 import com.github.liaochong.myexcel.core.parser.Image;
+import com.github.liaochong.myexcel.core.parser.ImageContent;
 import com.github.liaochong.myexcel.core.parser.Td;
 import com.github.liaochong.myexcel.core.parser.Tr;
 import com.github.liaochong.myexcel.core.strategy.SheetStrategy;
@@ -34,15 +35,14 @@ import com.github.liaochong.myexcel.core.style.TextAlignStyle;
 import com.github.liaochong.myexcel.core.style.ThDefaultCellStyle;
 import com.github.liaochong.myexcel.core.style.WordBreakStyle;
 import com.github.liaochong.myexcel.exception.ExcelBuildException;
-import com.github.liaochong.myexcel.exception.SaxReadException;
 import com.github.liaochong.myexcel.utils.ColorUtil;
 import com.github.liaochong.myexcel.utils.StringUtil;
 import com.github.liaochong.myexcel.utils.TdUtil;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.apache.poi.common.usermodel.HyperlinkType;
 import org.apache.poi.hssf.usermodel.HSSFPalette;
 import org.apache.poi.hssf.usermodel.HSSFRichTextString;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
-import org.apache.poi.poifs.filesystem.FileMagic;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.ss.usermodel.CellType;
@@ -66,7 +66,6 @@ import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.util.CellAddress;
 import org.apache.poi.ss.util.CellRangeAddress;
 import org.apache.poi.ss.util.CellRangeAddressList;
-import org.apache.poi.util.IOUtils;
 import org.apache.poi.util.Units;
 import org.apache.poi.xssf.streaming.SXSSFSheet;
 import org.apache.poi.xssf.streaming.SXSSFWorkbook;
@@ -77,15 +76,14 @@ import org.apache.poi.xssf.usermodel.XSSFRichTextString;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFSimpleShape;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
+import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -98,8 +96,6 @@ import java.util.stream.Collectors;
  */
 public abstract class AbstractExcelFactory implements ExcelFactory {
 
-    private static final Logger logger = LoggerFactory.getLogger(AbstractExcelFactory.class);
-
     protected static final int XLSX_MAX_ROW_COUNT = 1048576;
 
     protected static final int XLS_MAX_ROW_COUNT = 65536;
@@ -131,6 +127,18 @@ public abstract class AbstractExcelFactory implements ExcelFactory {
      * 单元格样式映射
      */
     private Map<Map<String, String>, CellStyle> cellStyleMap = new HashMap<>();
+    /**
+     * 样式ID对应的单元格样式，下标为样式ID
+     */
+    private CellStyle[] cellStyles = new CellStyle[16];
+    /**
+     * 各sheet合并区域索引
+     */
+    private Map<Sheet, MergedRegionIndex> mergedRegionIndexMap = new IdentityHashMap<>();
+    /**
+     * 数据验证合并，相邻且相同的提示、下拉列表合并为一个验证区域
+     */
+    private DataValidationMerger dataValidationMerger = new DataValidationMerger(this::addValidationData);
     /**
      * 样式容器
      */
@@ -151,6 +159,10 @@ public abstract class AbstractExcelFactory implements ExcelFactory {
      * 生成sheet策略，默认生成多个sheet
      */
     protected SheetStrategy sheetStrategy = SheetStrategy.MULTI_SHEET;
+    /**
+     * 输出压缩配置
+     */
+    protected CompressionProfile compressionProfile;
     /**
      * 用于保存名称管理
      */
@@ -160,17 +172,21 @@ public abstract class AbstractExcelFactory implements ExcelFactory {
      */
     protected Map<String, CellAddress> referMapping = new HashMap<>();
     /**
-     * 暂存单元格，由后续行认领
+     * 暂存单元格，按所在行存放，由后续行认领
      */
-    protected List<Td> stagingTds = new LinkedList<>();
+    final RowStaging stagingTds = new RowStaging();
 
     private CreationHelper createHelper;
 
     private DataFormat format;
     /**
-     * 图片路径缓存
+     * 图片池
      */
-    private Map<String, Integer> imageMapping;
+    private PicturePool picturePool;
+    /**
+     * 当前工作簿的下拉列表隐藏sheet索引
+     */
+    private DropDownLists dropDownLists;
 
     @Override
     public ExcelFactory useDefaultStyle() {
@@ -215,7 +231,7 @@ public abstract class AbstractExcelFactory implements ExcelFactory {
                 isHssf = true;
                 break;
             case SXLSX:
-                workbook = new SXSSFWorkbook(1);
+                workbook = this.createSXSSFWorkbook();
                 break;
             default:
                 workbook = new XSSFWorkbook();
@@ -223,6 +239,21 @@ public abstract class AbstractExcelFactory implements ExcelFactory {
         return this;
     }
 
+    private SXSSFWorkbook createSXSSFWorkbook() {
+        if (compressionProfile == null || compressionProfile == CompressionProfile.DEFAULT) {
+            return new SXSSFWorkbook(1);
+        }
+        int level = compressionProfile.level;
+        return new SXSSFWorkbook(null, 1, compressionProfile.compressTempFiles) {
+            @Override
+            protected ZipArchiveOutputStream createArchiveOutputStream(OutputStream stream) {
+                ZipArchiveOutputStream out = super.createArchiveOutputStream(stream);
+                out.setLevel(level);
+                return out;
+            }
+        };
+    }
+
     @Override
     public ExcelFactory widthStrategy(WidthStrategy widthStrategy) {
         this.widthStrategy = widthStrategy;
@@ -249,12 +280,19 @@ public abstract class AbstractExcelFactory implements ExcelFactory {
             Name name = workbook.createName();
             name.setNameName(entry.getKey());
             String content = entry.getValue().stream().map(String::valueOf).collect(Collectors.joining(Constants.COMMA));
-            DropDownLists.Index index = DropDownLists.getHiddenSheetIndex(content, workbook);
+            DropDownLists.Index index = this.getDropDownLists().getHiddenSheetIndex(content);
             name.setRefersToFormula(index.path);
         }
     }
 
 
+    private DropDownLists getDropDownLists() {
+        if (dropDownLists == null || dropDownLists.getWorkbook() != workbook) {
+            dropDownLists = new DropDownLists(workbook);
+        }
+        return dropDownLists;
+    }
+
     protected String getRealSheetName(String sheetName) {
         if (sheetName == null) {
             sheetName = "Sheet";
@@ -284,12 +322,13 @@ public abstract class AbstractExcelFactory implements ExcelFactory {
         if (tr.height > 0) {
             row.setHeightInPoints(tr.height);
         }
-        stagingTds.stream().filter(blankTd -> Objects.equals(blankTd.row, tr.index)).forEach(td -> {
+        List<Td> rowStagingTds = stagingTds.remove(tr.index);
+        if (rowStagingTds != null) {
             if (tr.tdList == Collections.EMPTY_LIST) {
                 tr.tdList = new LinkedList<>();
             }
-            tr.tdList.add(td);
-        });
+            tr.tdList.addAll(rowStagingTds);
+        }
         for (Td td : tr.tdList) {
             this.createCell(td, sheet, row);
             if (td.rowSpan == 0) {
@@ -300,12 +339,11 @@ public abstract class AbstractExcelFactory implements ExcelFactory {
                     Td blankTd = new Td(i, j);
                     blankTd.th = td.th;
                     blankTd.style = td.style;
-                    stagingTds.add(blankTd);
+                    blankTd.styleId = td.styleId;
+                    stagingTds.add(i, blankTd);
                 }
             }
         }
-        // 移除暂存区空白单元格
-        stagingTds.removeIf(td -> Objects.equals(td.row, tr.index));
     }
 
     /**
@@ -325,7 +363,9 @@ public abstract class AbstractExcelFactory implements ExcelFactory {
             switch (td.tdContentType) {
                 case DOUBLE:
                     cell = currentRow.createCell(td.col, CellType.NUMERIC);
-                    if (null != content) {
+                    if (null != td.number) {
+                        cell.setCellValue(td.number.doubleValue());
+                    } else if (null != content) {
                         cell.setCellValue(Double.parseDouble(content));
                     }
                     break;
@@ -341,7 +381,9 @@ public abstract class AbstractExcelFactory implements ExcelFactory {
                     break;
                 case BOOLEAN:
                     cell = currentRow.createCell(td.col, CellType.BOOLEAN);
-                    if (null != content) {
+                    if (null != td.bool) {
+                        cell.setCellValue(td.bool);
+                    } else if (null != content) {
                         cell.setCellValue(Boolean.parseBoolean(content));
                     }
                     break;
@@ -396,16 +438,34 @@ public abstract class AbstractExcelFactory implements ExcelFactory {
             }
         }
         if (td.colSpan > 0 || td.rowSpan > 0) {
-            sheet.addMergedRegion(new CellRangeAddress(td.row, td.getRowBound(), td.col, td.getColBound()));
+            this.addMergedRegion(sheet, new CellRangeAddress(td.row, td.getRowBound(), td.col, td.getColBound()));
+        }
+    }
+
+    /**
+     * 添加合并区域，重叠检查由合并区域索引完成，避免POI逐一比较已有区域
+     *
+     * @param sheet  sheet
+     * @param region 合并区域
+     */
+    protected void addMergedRegion(Sheet sheet, CellRangeAddress region) {
+        MergedRegionIndex mergedRegionIndex = mergedRegionIndexMap.get(sheet);
+        if (mergedRegionIndex == null) {
+            mergedRegionIndex = new MergedRegionIndex();
+            for (CellRangeAddress mergedRegion : sheet.getMergedRegions()) {
+                mergedRegionIndex.add(mergedRegion);
+            }
+            mergedRegionIndexMap.put(sheet, mergedRegionIndex);
         }
+        mergedRegionIndex.add(region);
+        sheet.addMergedRegionUnsafe(region);
     }
 
     private String process(Td td, Sheet sheet, Cell cell, String content) {
-        CellAddress cellAddress = cell.getAddress();
         if (td.dropdownList.getName() != null) {
-            referMapping.putIfAbsent(td.dropdownList.getName(), cellAddress);
+            referMapping.putIfAbsent(td.dropdownList.getName(), cell.getAddress());
         }
-        return this.setDropDownList(td, sheet, content, cellAddress);
+        return this.setDropDownList(td, sheet, content);
     }
 
     private void setComment(Td td, Sheet sheet, Cell cell) {
@@ -480,87 +540,72 @@ public abstract class AbstractExcelFactory implements ExcelFactory {
         if (ContentTypeEnum.isDropdownList(td.tdContentType)) {
             return;
         }
-        DataValidationHelper dvHelper = sheet.getDataValidationHelper();
-        DataValidationConstraint constraint = dvHelper.createCustomConstraint("BB1");
-        CellRangeAddressList addressList = new CellRangeAddressList(
+        dataValidationMerger.add(sheet, DataValidationMerger.Rule.prompt(td.promptContainer),
                 td.row, td.getRowBound(), td.col, td.getColBound());
-        DataValidation dataValidation = dvHelper.createValidation(constraint, addressList);
-        dataValidation.createPromptBox(td.promptContainer.title, td.promptContainer.text);
-        dataValidation.setShowPromptBox(true);
-        sheet.addValidationData(dataValidation);
+    }
+
+    /**
+     * 输出已合并的数据验证区域
+     *
+     * @param range 验证区域
+     */
+    private void addValidationData(DataValidationMerger.Range range) {
+        DataValidationMerger.Rule rule = range.rule;
+        DataValidationHelper dvHelper = range.sheet.getDataValidationHelper();
+        CellRangeAddressList addressList = new CellRangeAddressList(
+                range.firstRow, range.lastRow, range.firstCol, range.lastCol);
+        if (!rule.list) {
+            DataValidationConstraint constraint = dvHelper.createCustomConstraint("BB1");
+            DataValidation dataValidation = dvHelper.createValidation(constraint, addressList);
+            dataValidation.createPromptBox(rule.promptTitle, rule.promptText);
+            dataValidation.setShowPromptBox(true);
+            range.sheet.addValidationData(dataValidation);
+            return;
+        }
+        String formula = rule.formula;
+        if (rule.parentColumn >= 0) {
+            // 行为相对引用，区域内各行引用各自的父级单元格
+            String refer = new CellAddress(range.firstRow, rule.parentColumn).formatAsString();
+            formula = "=INDIRECT($" + refer + ")";
+        }
+        DataValidation validation = dvHelper.createValidation(dvHelper.createFormulaListConstraint(formula), addressList);
+        if (rule.promptTitle != null || rule.promptText != null) {
+            validation.createPromptBox(rule.promptTitle, rule.promptText);
+            validation.setShowPromptBox(true);
+        }
+        if (validation instanceof XSSFDataValidation) {
+            validation.setSuppressDropDownArrow(true);
+            validation.setShowErrorBox(true);
+        } else {
+            validation.setSuppressDropDownArrow(false);
+        }
+        range.sheet.addValidationData(validation);
+    }
+
+    /**
+     * 输出全部未结束的数据验证区域，需在sheet完成或输出文件前调用
+     */
+    protected void flushDataValidations() {
+        dataValidationMerger.flush();
     }
 
     private void setImage(Td td, Sheet sheet) {
-        if (td.file == null && td.fileIs == null) {
+        if (td.file == null && td.fileIs == null && td.imageContent == null) {
             return;
         }
         if (createHelper == null) {
             createHelper = workbook.getCreationHelper();
         }
+        if (picturePool == null || picturePool.getWorkbook() != workbook) {
+            picturePool = new PicturePool(workbook);
+        }
         int pictureIdx;
-        int format;
-        if (td.file != null) {
-            String fileName = td.file.getName();
-            String suffix = fileName.substring(fileName.lastIndexOf(".") + 1).toLowerCase();
-            switch (suffix) {
-                case "jpg":
-                case "jpeg":
-                    format = Workbook.PICTURE_TYPE_JPEG;
-                    break;
-                case "png":
-                    format = Workbook.PICTURE_TYPE_PNG;
-                    break;
-                case "dib":
-                    format = Workbook.PICTURE_TYPE_DIB;
-                    break;
-                case "emf":
-                    format = Workbook.PICTURE_TYPE_EMF;
-                    break;
-                case "pict":
-                    format = Workbook.PICTURE_TYPE_PICT;
-                    break;
-                case "wmf":
-                    format = Workbook.PICTURE_TYPE_WMF;
-                    break;
-                default:
-                    throw new IllegalArgumentException("Invalid image type");
-            }
-            if (imageMapping == null) {
-                imageMapping = new HashMap<>();
-            }
-            pictureIdx = imageMapping.computeIfAbsent(td.file.getAbsolutePath(), s -> {
-                try {
-                    byte[] bytes = Files.readAllBytes(td.file.toPath());
-                    return workbook.addPicture(bytes, format);
-                } catch (IOException e) {
-                    logger.error("read image failure", e);
-                    throw new ExcelBuildException("read image failure, path:" + td.file.getAbsolutePath(), e);
-                }
-            });
+        if (td.imageContent != null) {
+            pictureIdx = picturePool.addPicture(td.imageContent);
+        } else if (td.file != null) {
+            pictureIdx = picturePool.addPicture(td.file);
         } else {
-            FileMagic fm;
-            try (InputStream is = FileMagic.prepareToCheckMagic(td.fileIs)) {
-                fm = FileMagic.valueOf(is);
-                switch (fm) {
-                    case JPEG:
-                        format = Workbook.PICTURE_TYPE_JPEG;
-                        break;
-                    case PNG:
-                        format = Workbook.PICTURE_TYPE_PNG;
-                        break;
-                    case EMF:
-                        format = Workbook.PICTURE_TYPE_EMF;
-                        break;
-                    case WMF:
-                        format = Workbook.PICTURE_TYPE_WMF;
-                        break;
-                    default:
-                        throw new IllegalArgumentException("Invalid image type");
-                }
-                pictureIdx = workbook.addPicture(IOUtils.toByteArray(is), format);
-            } catch (Throwable throwable) {
-                throw new SaxReadException("Fail to get excel magic", throwable);
-            }
+            pictureIdx = picturePool.addPicture(ImageContent.of(td.fileIs));
         }
         ClientAnchor anchor = createHelper.createClientAnchor();
         anchor.setAnchorType(ClientAnchor.AnchorType.MOVE_AND_RESIZE);
@@ -606,40 +651,25 @@ public abstract class AbstractExcelFactory implements ExcelFactory {
         return cell;
     }
 
-    private String setDropDownList(Td td, Sheet sheet, String content, CellAddress cellAddress) {
+    private String setDropDownList(Td td, Sheet sheet, String content) {
         if (content != null && !content.isEmpty()) {
-            CellRangeAddressList addressList;
+            int lastRow;
             if (td.dropdownList.isFullColumnReference()) {
-                addressList = new CellRangeAddressList(
-                        td.row, (isHssf ? XLS_MAX_ROW_COUNT : XLSX_MAX_ROW_COUNT) - td.row, td.col, td.getColBound());
+                lastRow = (isHssf ? XLS_MAX_ROW_COUNT : XLSX_MAX_ROW_COUNT) - td.row;
             } else {
-                addressList = new CellRangeAddressList(
-                        td.row, td.getRowBound(), td.col, td.getColBound());
+                lastRow = td.getRowBound();
             }
-            DataValidationHelper dvHelper = sheet.getDataValidationHelper();
-            DropDownLists.Index index = DropDownLists.getHiddenSheetIndex(content, workbook);
-            String[] list = new String[]{index.firstLine};
-            DataValidation validation;
+            DropDownLists.Index index = this.getDropDownLists().getHiddenSheetIndex(content);
+            DataValidationMerger.Rule rule;
             boolean linkage = StringUtil.isNotBlank(td.dropdownList.getParent());
             if (linkage) {
                 CellAddress parentCellAddress = referMapping.get(td.dropdownList.getParent());
-                String refer = new CellAddress(cellAddress.getRow(), parentCellAddress.getColumn()).formatAsString();
-                validation = dvHelper.createValidation(dvHelper.createFormulaListConstraint("=INDIRECT($" + refer + ")"), addressList);
-            } else {
-                validation = dvHelper.createValidation(dvHelper.createFormulaListConstraint(index.path), addressList);
-            }
-            if (td.promptContainer != null) {
-                validation.createPromptBox(td.promptContainer.title, td.promptContainer.text);
-                validation.setShowPromptBox(true);
-            }
-            if (validation instanceof XSSFDataValidation) {
-                validation.setSuppressDropDownArrow(true);
-                validation.setShowErrorBox(true);
+                rule = DataValidationMerger.Rule.linkage(parentCellAddress.getColumn(), td.promptContainer);
             } else {
-                validation.setSuppressDropDownArrow(false);
+                rule = DataValidationMerger.Rule.list(index.path, td.promptContainer);
             }
-            sheet.addValidationData(validation);
-            return linkage ? null : td.dropdownList.isShowFirstOption() ? list[0] : null;
+            dataValidationMerger.add(sheet, rule, td.row, lastRow, td.col, td.getColBound());
+            return linkage ? null : td.dropdownList.isShowFirstOption() ? index.firstLine : null;
         }
         return null;
     }
@@ -677,34 +707,50 @@ public abstract class AbstractExcelFactory implements ExcelFactory {
                     }
                 }
             }
-            if (cellStyleMap.containsKey(td.style)) {
-                cell.setCellStyle(cellStyleMap.get(td.style));
+            // 样式ID由StyleParser分配，默认样式会按单元格类型修改样式，此时不使用ID
+            boolean useStyleId = td.styleId > 0 && !applyDefaultStyle;
+            if (useStyleId && td.styleId < cellStyles.length && cellStyles[td.styleId] != null) {
+                cell.setCellStyle(cellStyles[td.styleId]);
                 return;
             }
-            CellStyle cellStyle = workbook.createCellStyle();
-            // background-color
-            BackgroundStyle.setBackgroundColor(cellStyle, td.style, customColor);
-            // text-align
-            TextAlignStyle.setTextAlign(cellStyle, td.style);
-            // border
-            BorderStyle.setBorder(cellStyle, td.style);
-            // word-break
-            WordBreakStyle.setWordBreak(cellStyle, td.style);
-            // 内容格式
-            String formatStr = td.style.get("format");
-            if (formatStr != null) {
-                if (format == null) {
-                    format = workbook.createDataFormat();
+            CellStyle cellStyle = cellStyleMap.get(td.style);
+            if (cellStyle == null) {
+                cellStyle = this.createCellStyle(td);
+                cellStyleMap.put(td.style, cellStyle);
+            }
+            cell.setCellStyle(cellStyle);
+            if (useStyleId) {
+                if (td.styleId >= cellStyles.length) {
+                    cellStyles = Arrays.copyOf(cellStyles, Math.max(cellStyles.length << 1, td.styleId + 1));
                 }
-                cellStyle.setDataFormat(format.getFormat(formatStr));
+                cellStyles[td.styleId] = cellStyle;
             }
-            // font
-            if (td.fonts == null || td.fonts.isEmpty()) {
-                FontStyle.setFont(() -> workbook.createFont(), cellStyle, td.style, fontMap, customColor);
+        }
+    }
+
+    private CellStyle createCellStyle(Td td) {
+        CellStyle cellStyle = workbook.createCellStyle();
+        // background-color
+        BackgroundStyle.setBackgroundColor(cellStyle, td.style, customColor);
+        // text-align
+        TextAlignStyle.setTextAlign(cellStyle, td.style);
+        // border
+        BorderStyle.setBorder(cellStyle, td.style);
+        // word-break
+        WordBreakStyle.setWordBreak(cellStyle, td.style);
+        // 内容格式
+        String formatStr = td.style.get("format");
+        if (formatStr != null) {
+            if (format == null) {
+                format = workbook.createDataFormat();
             }
-            cell.setCellStyle(cellStyle);
-            cellStyleMap.put(td.style, cellStyle);
+            cellStyle.setDataFormat(format.getFormat(formatStr));
+        }
+        // font
+        if (td.fonts == null || td.fonts.isEmpty()) {
+            FontStyle.setFont(() -> workbook.createFont(), cellStyle, td.style, fontMap, customColor);
         }
+        return cellStyle;
     }
 
     private void doSetInnerSpan(Cell cell, Td td) {
@@ -833,16 +879,21 @@ public abstract class AbstractExcelFactory implements ExcelFactory {
      */
     protected void clearCache() {
         cellStyleMap = new HashMap<>();
+        cellStyles = new CellStyle[16];
+        mergedRegionIndexMap = new IdentityHashMap<>();
+        dataValidationMerger = new DataValidationMerger(this::addValidationData);
         fontMap = new HashMap<>();
         format = null;
         createHelper = null;
-        imageMapping = null;
+        picturePool = null;
+        dropDownLists = null;
     }
 
     /**
      * 关闭工作簿
      */
     protected void closeWorkbook() {
+        dropDownLists = null;
         if (workbook == null) {
             return;
         }
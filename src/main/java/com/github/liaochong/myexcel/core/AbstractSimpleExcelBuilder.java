@@ -21,6 +21,7 @@ import com.github.liaochong.myexcel.core.annotation.MultiColumn;
 import com.github.liaochong.myexcel.core.constant.BooleanDropDownList;
 import com.github.liaochong.myexcel.core.constant.Constants;
 import com.github.liaochong.myexcel.core.constant.DropDownList;
+import com.github.liaochong.myexcel.core.constant.FileType;
 import com.github.liaochong.myexcel.core.constant.ImageFile;
 import com.github.liaochong.myexcel.core.constant.LinkEmail;
 import com.github.liaochong.myexcel.core.constant.LinkUrl;
@@ -47,6 +48,7 @@ import java.io.File;
 import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
@@ -61,7 +63,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 /**
  * @author liaochong
@@ -115,6 +116,14 @@ abstract class AbstractSimpleExcelBuilder {
      * 是否拥有聚合列
      */
     protected boolean hasMultiColumn = false;
+    /**
+     * 列写入计划
+     */
+    private WriteColumn[] writeColumns = new WriteColumn[0];
+    /**
+     * 写入计划对应的字段集合
+     */
+    private List<FieldDefinition> writeColumnsSource = Collections.emptyList();
 
 
     public AbstractSimpleExcelBuilder(boolean isCsvBuild) {
@@ -182,6 +191,31 @@ abstract class AbstractSimpleExcelBuilder {
         return buildFields;
     }
 
+    /**
+     * 获取列写入计划，导出字段变化时重新编译
+     *
+     * @return 列写入计划
+     */
+    protected WriteColumn[] getWriteColumns() {
+        if (writeColumnsSource == filteredFields) {
+            return writeColumns;
+        }
+        List<FieldDefinition> fields = filteredFields;
+        WriteColumn[] columns = new WriteColumn[fields.size()];
+        for (int i = 0, size = fields.size(); i < size; i++) {
+            FieldDefinition fieldDefinition = fields.get(i);
+            Field field = fieldDefinition.getField();
+            String defaultValue = defaultValueMap.get(field);
+            if (defaultValue == null) {
+                defaultValue = configuration.defaultValue;
+            }
+            columns[i] = new WriteColumn(fieldDefinition, defaultValue, formats.get(i), excelColumnMappingMap.get(field));
+        }
+        writeColumns = columns;
+        writeColumnsSource = fields;
+        return columns;
+    }
+
     protected void parseGlobalStyle() {
         styleParser.parse(configuration.style);
     }
@@ -328,9 +362,11 @@ abstract class AbstractSimpleExcelBuilder {
             return tr;
         }
         tr.colWidthMap = new HashMap<>();
-        List<Td> tdList = IntStream.range(0, contents.size()).mapToObj(index -> {
+        WriteColumn[] columns = isMapBuild ? null : this.getWriteColumns();
+        List<Td> tdList = new ArrayList<>(contents.size());
+        int index = 0;
+        for (Pair<? extends Class, ?> pair : contents) {
             Td td = new Td(0, index);
-            Pair<? extends Class, ?> pair = contents.get(index);
             if (configuration.autoMerge && pair.getRepeatSize() != null) {
                 td.setRowSpan(pair.getRepeatSize());
             }
@@ -338,16 +374,19 @@ abstract class AbstractSimpleExcelBuilder {
             this.setTdContentType(td, pair.getKey());
             if (isMapBuild) {
                 this.setDateFormatForMap(pair.getKey(), td);
-            } else {
-                td.format = formats.get(index);
-                this.setFormula(index, td);
-                this.setPrompt(td, index);
-                this.setImage(td, index);
-                this.setDropdownList(td, index);
+            } else if (index < columns.length) {
+                WriteColumn column = columns[index];
+                td.format = column.format;
+                td.formula = column.formula;
+                td.promptContainer = column.promptContainer;
+                td.image = column.image;
+                td.dropdownList = column.dropdownList;
+                td.mergeSame = column.mergeSame;
             }
             this.setTdWidth(tr.colWidthMap, td);
-            return td;
-        }).collect(Collectors.toList());
+            tdList.add(td);
+            index++;
+        }
         tr.colWidthMap.putAll(customWidthMap);
         tr.tdList = tdList;
         return tr;
@@ -357,10 +396,16 @@ abstract class AbstractSimpleExcelBuilder {
         if (!configuration.computeAutoWidth) {
             return;
         }
+        String content = td.content;
+        if (content == null && td.number != null) {
+            content = td.number instanceof BigDecimal ? ((BigDecimal) td.number).toPlainString() : td.number.toString();
+        } else if (content == null && td.bool != null) {
+            content = td.bool.toString();
+        }
         if (td.format == null) {
-            colWidthMap.put(td.col, TdUtil.getStringWidth(td.content));
+            colWidthMap.put(td.col, TdUtil.getStringWidth(content));
         } else {
-            if (td.content != null && td.format.length() > td.content.length()) {
+            if (content != null && td.format.length() > content.length()) {
                 colWidthMap.put(td.col, TdUtil.getStringWidth(td.format));
             } else if (td.date != null || td.localDate != null || td.localDateTime != null) {
                 colWidthMap.put(td.col, TdUtil.getStringWidth(td.format, -0.15));
@@ -368,16 +413,6 @@ abstract class AbstractSimpleExcelBuilder {
         }
     }
 
-    private void setFormula(int i, Td td) {
-        ExcelColumnMapping excelColumnMapping = getExcelColumnMapping(i);
-        if (excelColumnMapping == null) {
-            return;
-        }
-        if (excelColumnMapping.formula) {
-            td.formula = true;
-        }
-    }
-
     protected void setPrompt(Td td, int index) {
         ExcelColumnMapping excelColumnMapping = getExcelColumnMapping(index);
         if (excelColumnMapping == null) {
@@ -408,6 +443,25 @@ abstract class AbstractSimpleExcelBuilder {
         }
     }
 
+    /**
+     * 原生xlsx写入不支持图片及下拉列表，按字段类型在启动时校验
+     */
+    protected void checkNativeXlsxColumns() {
+        for (FieldDefinition fieldDefinition : filteredFields) {
+            Field field = fieldDefinition.getField();
+            Class<?> fieldType = field.getType();
+            ExcelColumnMapping mapping = excelColumnMappingMap.get(field);
+            if (fieldType == ImageFile.class || (mapping != null && mapping.fileType == FileType.IMAGE)) {
+                throw new IllegalArgumentException("The native xlsx workbook does not support images, field:" + field.getName());
+            }
+            // 数组及非多列的List均按下拉列表输出
+            if (fieldType == DropDownList.class || fieldType == NumberDropDownList.class || fieldType == BooleanDropDownList.class
+                    || fieldType.isArray() || (fieldType == List.class && !field.isAnnotationPresent(MultiColumn.class))) {
+                throw new IllegalArgumentException("The native xlsx workbook does not support dropdown lists, field:" + field.getName());
+            }
+        }
+    }
+
     private ExcelColumnMapping getExcelColumnMapping(int index) {
         if (filteredFields.isEmpty()) {
             return null;
@@ -433,6 +487,10 @@ abstract class AbstractSimpleExcelBuilder {
             } else {
                 td.fileIs = (InputStream) pair.getValue();
             }
+        } else if (pair.getValue() instanceof Number && ReflectUtil.isNumber(fieldType)) {
+            td.number = (Number) pair.getValue();
+        } else if (pair.getValue() instanceof Boolean && ReflectUtil.isBool(fieldType)) {
+            td.bool = (Boolean) pair.getValue();
         } else {
             td.content = String.valueOf(pair.getValue());
         }
@@ -637,7 +695,19 @@ abstract class AbstractSimpleExcelBuilder {
      * @param <T>          泛型
      * @return 结果集
      */
-    protected <T> LinkedList<Pair<? extends Class, ?>> getOriginalRenderContent(T data, List<FieldDefinition> sortedFields) {
+    protected <T> List<Pair<? extends Class, ?>> getOriginalRenderContent(T data, List<FieldDefinition> sortedFields) {
+        if (sortedFields == filteredFields) {
+            WriteColumn[] columns = this.getWriteColumns();
+            List<Pair<? extends Class, ?>> contents = new ArrayList<>(columns.length);
+            for (WriteColumn column : columns) {
+                Pair<? extends Class, Object> value = column.convert(data, convertContext);
+                if (value.getValue() == null && column.defaultValue != null) {
+                    value = Pair.of(String.class, column.defaultValue);
+                }
+                contents.add(value);
+            }
+            return contents;
+        }
         return sortedFields.stream()
                 .map(field -> {
                     Pair<? extends Class, Object> value = WriteConverterContext.convert(field, data, convertContext);
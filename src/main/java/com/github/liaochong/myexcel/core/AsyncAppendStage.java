@@ -0,0 +1,197 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core;
+
+import com.github.liaochong.myexcel.core.parser.Tr;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 非阻塞追加阶段，数据按提交顺序排队，缓冲区有空间时由执行器转换并放入缓冲区，
+ * 缓冲区已满时不占用任何线程，待写入线程腾出空间后继续
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+final class AsyncAppendStage<T> {
+
+    private final Function<T, List<Tr>> converter;
+    /**
+     * 非阻塞放入缓冲区，空间不足时返回false
+     */
+    private final Predicate<List<Tr>> offer;
+
+    private final Executor executor;
+
+    private final int batchSize;
+
+    private final Queue<PendingAppend<T>> pendingAppends = new ConcurrentLinkedQueue<>();
+    /**
+     * 待处理的通知次数，仅在由0变为1时提交处理任务
+     */
+    private final AtomicInteger wip = new AtomicInteger();
+
+    private volatile CompletableFuture<Void> lastFuture = CompletableFuture.completedFuture(null);
+
+    private volatile Throwable failure;
+
+    AsyncAppendStage(Function<T, List<Tr>> converter, Predicate<List<Tr>> offer, Executor executor, int batchSize) {
+        this.converter = converter;
+        this.offer = offer;
+        this.executor = executor;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * 提交数据，全部放入缓冲区后完成
+     *
+     * @param dataList 数据
+     * @return 完成信号
+     */
+    synchronized CompletableFuture<Void> submit(List<T> dataList) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        if (failure != null) {
+            future.completeExceptionally(failure);
+        } else {
+            // 调用方可能复用原集合，此处复制一份
+            pendingAppends.add(new PendingAppend<>(new ArrayList<>(dataList), future));
+        }
+        lastFuture = future;
+        this.signal();
+        return future;
+    }
+
+    boolean isEmpty() {
+        return pendingAppends.isEmpty();
+    }
+
+    /**
+     * 通知缓冲区已腾出空间，需立即返回
+     */
+    void signal() {
+        if (pendingAppends.isEmpty() || wip.getAndIncrement() != 0) {
+            return;
+        }
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            wip.set(0);
+            this.fail(e);
+        }
+    }
+
+    private void drain() {
+        int missed = 1;
+        for (; ; ) {
+            this.drainOnce();
+            missed = wip.addAndGet(-missed);
+            if (missed == 0) {
+                return;
+            }
+        }
+    }
+
+    private void drainOnce() {
+        PendingAppend<T> pendingAppend;
+        while ((pendingAppend = pendingAppends.peek()) != null) {
+            try {
+                if (!this.offerNext(pendingAppend)) {
+                    return;
+                }
+            } catch (Throwable e) {
+                this.fail(e);
+                return;
+            }
+            if (pendingAppend.offset == pendingAppend.dataList.size()) {
+                pendingAppends.poll();
+                pendingAppend.future.complete(null);
+            }
+        }
+    }
+
+    private boolean offerNext(PendingAppend<T> pendingAppend) {
+        if (pendingAppend.trList == null) {
+            int end = Math.min(pendingAppend.offset + batchSize, pendingAppend.dataList.size());
+            List<Tr> trList = new ArrayList<>(end - pendingAppend.offset);
+            for (T data : pendingAppend.dataList.subList(pendingAppend.offset, end)) {
+                if (data != null) {
+                    trList.addAll(converter.apply(data));
+                }
+            }
+            pendingAppend.trList = trList;
+            pendingAppend.end = end;
+        }
+        if (!pendingAppend.trList.isEmpty() && !offer.test(pendingAppend.trList)) {
+            return false;
+        }
+        pendingAppend.trList = null;
+        pendingAppend.offset = pendingAppend.end;
+        return true;
+    }
+
+    /**
+     * 顺序被打破，当前及后续数据全部失败
+     *
+     * @param e 异常
+     */
+    private synchronized void fail(Throwable e) {
+        if (failure == null) {
+            failure = e;
+        }
+        PendingAppend<T> pendingAppend;
+        while ((pendingAppend = pendingAppends.poll()) != null) {
+            pendingAppend.future.completeExceptionally(failure);
+        }
+    }
+
+    void cancel() {
+        this.fail(new CancellationException("Canceled build task"));
+    }
+
+    /**
+     * 等待已提交数据全部放入缓冲区
+     */
+    void await() {
+        lastFuture.join();
+    }
+
+    private static final class PendingAppend<T> {
+
+        final List<T> dataList;
+
+        final CompletableFuture<Void> future;
+
+        int offset;
+
+        int end;
+
+        List<Tr> trList;
+
+        PendingAppend(List<T> dataList, CompletableFuture<Void> future) {
+            this.dataList = dataList;
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core;
+
+import java.util.concurrent.ExecutorService;
+import java.util.zip.Deflater;
+
+/**
+ * 输出压缩配置，包含压缩级别、SXSSF临时文件是否压缩、并行压缩线程池以及zip条目存储方式
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public class CompressionProfile {
+
+    public static final CompressionProfile DEFAULT = new CompressionProfile(Deflater.DEFAULT_COMPRESSION, false);
+    /**
+     * zip压缩包中的excel不再压缩，excel本身已是压缩格式
+     */
+    public static final CompressionProfile STORED = new CompressionProfile(Deflater.DEFAULT_COMPRESSION, false, null, true);
+    /**
+     * 压缩级别，-1为默认级别，0-9依次提高压缩率
+     */
+    final int level;
+    /**
+     * SXSSF行数据临时文件是否压缩，节省磁盘空间但增加CPU消耗
+     */
+    final boolean compressTempFiles;
+    /**
+     * 并行压缩线程池，为空时单线程压缩
+     */
+    final ExecutorService deflateExecutor;
+    /**
+     * zip压缩包条目是否以不压缩方式存储
+     */
+    final boolean storeZipEntries;
+
+    public CompressionProfile(int level, boolean compressTempFiles) {
+        this(level, compressTempFiles, null);
+    }
+
+    public CompressionProfile(int level, boolean compressTempFiles, ExecutorService deflateExecutor) {
+        this(level, compressTempFiles, deflateExecutor, false);
+    }
+
+    public CompressionProfile(int level, boolean compressTempFiles, ExecutorService deflateExecutor, boolean storeZipEntries) {
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Compression level must be between -1 and 9");
+        }
+        this.level = level;
+        this.compressTempFiles = compressTempFiles;
+        this.deflateExecutor = deflateExecutor;
+        this.storeZipEntries = storeZipEntries;
+    }
+}
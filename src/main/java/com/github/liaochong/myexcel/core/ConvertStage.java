@@ -0,0 +1,231 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core;
+
+import com.github.liaochong.myexcel.core.parser.Tr;
+import com.github.liaochong.myexcel.exception.ExcelBuildException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 并行转换阶段，多个线程并行将数据转换为行，再经重排缓冲区按提交顺序交给写入线程
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+final class ConvertStage<T> {
+
+    private static final AtomicInteger STAGE_COUNT = new AtomicInteger();
+
+    private final ExecutorService executorService;
+
+    private final Function<T, List<Tr>> converter;
+
+    private final Consumer<List<Tr>> sink;
+    /**
+     * 允许同时处于转换或等待重排的批次数量
+     */
+    private final int window;
+    /**
+     * 已完成但尚未轮到输出的批次
+     */
+    private final Map<Long, List<Tr>> reorderBuffer = new HashMap<>();
+
+    /**
+     * 下一个提交批次的序号，仅在持有锁时修改
+     */
+    private volatile long nextSequence;
+    /**
+     * 下一个待输出批次的序号，仅由输出者修改
+     */
+    private volatile long nextEmitSequence;
+    /**
+     * 输出者标记，同一时刻仅一个线程在锁外向写入线程输出
+     */
+    private final AtomicInteger wip = new AtomicInteger();
+
+    private volatile Throwable failure;
+    /**
+     * 已提交数据全部交给写入线程时的通知
+     */
+    private volatile Runnable idleListener;
+
+    ConvertStage(int parallelism, Function<T, List<Tr>> converter, Consumer<List<Tr>> sink) {
+        int stageNum = STAGE_COUNT.incrementAndGet();
+        AtomicInteger threadCount = new AtomicInteger();
+        // 空闲线程自动回收，构建器被丢弃时不残留线程
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(parallelism, parallelism, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "myexcel-convert-" + stageNum + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        this.executorService = executor;
+        this.converter = converter;
+        this.sink = sink;
+        this.window = parallelism << 1;
+    }
+
+    /**
+     * 提交一批数据，转换窗口已满时阻塞
+     *
+     * @param dataList 数据
+     */
+    void submit(List<T> dataList) {
+        long sequence;
+        synchronized (this) {
+            this.checkFailure();
+            while (nextSequence - nextEmitSequence >= window) {
+                this.await0();
+                this.checkFailure();
+            }
+            sequence = nextSequence++;
+        }
+        // 调用方可能复用原集合，此处复制一份
+        List<T> copy = new ArrayList<>(dataList);
+        try {
+            executorService.execute(() -> {
+                List<Tr> result;
+                try {
+                    result = this.convert(copy);
+                } catch (Throwable e) {
+                    this.fail(e);
+                    result = Collections.emptyList();
+                }
+                this.complete(sequence, result);
+            });
+        } catch (RejectedExecutionException e) {
+            this.fail(e);
+            this.complete(sequence, Collections.emptyList());
+            this.checkFailure();
+        }
+    }
+
+    private List<Tr> convert(List<T> dataList) {
+        List<Tr> result = new ArrayList<>(dataList.size());
+        for (T data : dataList) {
+            if (data != null) {
+                result.addAll(converter.apply(data));
+            }
+        }
+        return result;
+    }
+
+    private void complete(long sequence, List<Tr> result) {
+        synchronized (this) {
+            reorderBuffer.put(sequence, result);
+        }
+        this.drain();
+    }
+
+    /**
+     * 在锁内取出已按序就绪的批次，在锁外输出，写入线程阻塞时不影响提交及空闲判断
+     */
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            List<List<Tr>> ready = new ArrayList<>();
+            while (true) {
+                synchronized (this) {
+                    List<Tr> trList;
+                    while ((trList = reorderBuffer.remove(nextEmitSequence + ready.size())) != null) {
+                        ready.add(trList);
+                    }
+                }
+                if (ready.isEmpty()) {
+                    break;
+                }
+                for (List<Tr> trList : ready) {
+                    if (failure == null && !trList.isEmpty()) {
+                        try {
+                            sink.accept(trList);
+                        } catch (Throwable e) {
+                            this.fail(e);
+                        }
+                    }
+                }
+                synchronized (this) {
+                    nextEmitSequence += ready.size();
+                    this.notifyAll();
+                }
+                ready.clear();
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+        Runnable listener = idleListener;
+        if (listener != null && this.isIdle()) {
+            listener.run();
+        }
+    }
+
+    void onIdle(Runnable idleListener) {
+        this.idleListener = idleListener;
+    }
+
+    boolean isIdle() {
+        return nextEmitSequence == nextSequence;
+    }
+
+    private synchronized void fail(Throwable e) {
+        if (failure == null) {
+            failure = e;
+        }
+    }
+
+    /**
+     * 等待已提交数据全部交给写入线程
+     */
+    synchronized void await() {
+        while (nextEmitSequence < nextSequence) {
+            this.await0();
+        }
+        this.checkFailure();
+    }
+
+    private void await0() {
+        try {
+            this.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExcelBuildException("Interrupted while waiting for conversion", e);
+        }
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new ExcelBuildException("An exception occurred while converting", failure);
+        }
+    }
+
+    void shutdown() {
+        executorService.shutdownNow();
+    }
+}
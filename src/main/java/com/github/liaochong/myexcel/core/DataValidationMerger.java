@@ -0,0 +1,168 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core;
+
+import org.apache.poi.ss.usermodel.Sheet;
+
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * 数据验证合并，同一列中相邻且规则相同的单元格合并为一个验证区域，
+ * 每列仅保留当前未结束的区域，区域结束或sheet完成时输出
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+final class DataValidationMerger {
+    /**
+     * 各sheet未结束的区域，键为起始列
+     */
+    private final Map<Sheet, Map<Integer, Range>> openRanges = new IdentityHashMap<>();
+
+    private final Consumer<Range> rangeConsumer;
+
+    DataValidationMerger(Consumer<Range> rangeConsumer) {
+        this.rangeConsumer = rangeConsumer;
+    }
+
+    /**
+     * 添加单元格区域的验证规则
+     *
+     * @param sheet    sheet，原生写入时为null
+     * @param rule     验证规则
+     * @param firstRow 起始行
+     * @param lastRow  结束行
+     * @param firstCol 起始列
+     * @param lastCol  结束列
+     */
+    void add(Sheet sheet, Rule rule, int firstRow, int lastRow, int firstCol, int lastCol) {
+        Map<Integer, Range> ranges = openRanges.computeIfAbsent(sheet, k -> new LinkedHashMap<>());
+        Range range = ranges.get(firstCol);
+        if (range != null) {
+            if (range.lastCol == lastCol && range.rule.equals(rule)
+                    && firstRow >= range.firstRow && firstRow <= range.lastRow + 1) {
+                range.lastRow = Math.max(range.lastRow, lastRow);
+                return;
+            }
+            rangeConsumer.accept(range);
+        }
+        ranges.put(firstCol, new Range(sheet, rule, firstRow, lastRow, firstCol, lastCol));
+    }
+
+    /**
+     * 输出全部未结束的区域，需在sheet完成或输出文件前调用
+     */
+    void flush() {
+        if (openRanges.isEmpty()) {
+            return;
+        }
+        openRanges.values().forEach(ranges -> ranges.values().forEach(rangeConsumer));
+        openRanges.clear();
+    }
+
+    /**
+     * 验证规则，规则相同的相邻单元格可合并
+     */
+    static final class Rule {
+        /**
+         * 是否为下拉列表，否则仅为提示
+         */
+        final boolean list;
+        /**
+         * 下拉列表引用公式
+         */
+        final String formula;
+        /**
+         * 联动时父级所在列，非联动为-1
+         */
+        final int parentColumn;
+
+        final String promptTitle;
+
+        final String promptText;
+
+        private Rule(boolean list, String formula, int parentColumn, PromptContainer promptContainer) {
+            this.list = list;
+            this.formula = formula;
+            this.parentColumn = parentColumn;
+            this.promptTitle = promptContainer == null ? null : promptContainer.title;
+            this.promptText = promptContainer == null ? null : promptContainer.text;
+        }
+
+        static Rule prompt(PromptContainer promptContainer) {
+            return new Rule(false, null, -1, promptContainer);
+        }
+
+        static Rule list(String formula, PromptContainer promptContainer) {
+            return new Rule(true, formula, -1, promptContainer);
+        }
+
+        static Rule linkage(int parentColumn, PromptContainer promptContainer) {
+            return new Rule(true, null, parentColumn, promptContainer);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Rule)) {
+                return false;
+            }
+            Rule rule = (Rule) o;
+            return list == rule.list
+                    && parentColumn == rule.parentColumn
+                    && Objects.equals(formula, rule.formula)
+                    && Objects.equals(promptTitle, rule.promptTitle)
+                    && Objects.equals(promptText, rule.promptText);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(list, formula, parentColumn, promptTitle, promptText);
+        }
+    }
+
+    /**
+     * 验证区域
+     */
+    static final class Range {
+
+        final Sheet sheet;
+
+        final Rule rule;
+
+        final int firstRow;
+
+        int lastRow;
+
+        final int firstCol;
+
+        final int lastCol;
+
+        private Range(Sheet sheet, Rule rule, int firstRow, int lastRow, int firstCol, int lastCol) {
+            this.sheet = sheet;
+            this.rule = rule;
+            this.firstRow = firstRow;
+            this.lastRow = lastRow;
+            this.firstCol = firstCol;
+            this.lastCol = lastCol;
+        }
+    }
+}
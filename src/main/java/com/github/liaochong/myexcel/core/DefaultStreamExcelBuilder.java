@@ -16,13 +16,18 @@
 package com.github.liaochong.myexcel.core;
 
 import com.github.liaochong.myexcel.core.container.Pair;
+import com.github.liaochong.myexcel.core.parser.ContentTypeEnum;
+import com.github.liaochong.myexcel.core.parser.ImageContent;
 import com.github.liaochong.myexcel.core.parser.ParseConfig;
 import com.github.liaochong.myexcel.core.parser.Table;
+import com.github.liaochong.myexcel.core.parser.Td;
 import com.github.liaochong.myexcel.core.parser.Tr;
 import com.github.liaochong.myexcel.core.reflect.ClassFieldContainer;
 import com.github.liaochong.myexcel.core.strategy.AutoWidthStrategy;
+import com.github.liaochong.myexcel.core.strategy.WaitStrategy;
 import com.github.liaochong.myexcel.core.strategy.WidthStrategy;
 import com.github.liaochong.myexcel.core.templatehandler.TemplateHandler;
+import com.github.liaochong.myexcel.exception.ExcelBuildException;
 import com.github.liaochong.myexcel.utils.ReflectUtil;
 import com.github.liaochong.myexcel.utils.TempFileOperator;
 import org.apache.poi.ss.usermodel.Sheet;
@@ -31,17 +36,36 @@ import org.slf4j.Logger;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -82,6 +106,30 @@ public class DefaultStreamExcelBuilder<T> extends AbstractSimpleExcelBuilder imp
     private TemplateHandler templateHandler;
 
     private final List<CompletableFuture<Void>> asyncAppendFutures = new LinkedList<>();
+    /**
+     * 并行转换线程数
+     */
+    private int convertParallelism = 1;
+    /**
+     * 图片预加载线程数，0为不预加载
+     */
+    private int imagePrefetchParallelism;
+    /**
+     * 图片预加载线程池，与并行转换相互独立
+     */
+    private ExecutorService imagePrefetchExecutor;
+    /**
+     * 并行转换阶段
+     */
+    private ConvertStage<T> convertStage;
+    /**
+     * 非阻塞追加阶段
+     */
+    private AsyncAppendStage<T> asyncAppendStage;
+    /**
+     * 调度器登记，构建器未经构建、取消或关闭即被回收时中止写入
+     */
+    private ExportScheduler.Registration registration;
 
     private final HtmlToExcelStreamFactory.HtmlToExcelStreamFactoryContext context = new HtmlToExcelStreamFactory.HtmlToExcelStreamFactoryContext();
 
@@ -249,7 +297,46 @@ public class DefaultStreamExcelBuilder<T> extends AbstractSimpleExcelBuilder imp
     }
 
     public DefaultStreamExcelBuilder<T> waitQueueSize(int waitQueueSize) {
-        this.context.trWaitQueue = new LinkedBlockingQueue<>(waitQueueSize);
+        this.context.waitQueueSize = waitQueueSize;
+        return this;
+    }
+
+    public DefaultStreamExcelBuilder<T> waitStrategy(WaitStrategy waitStrategy) {
+        this.context.waitStrategy = waitStrategy;
+        return this;
+    }
+
+    public DefaultStreamExcelBuilder<T> convertParallelism(int convertParallelism) {
+        if (convertParallelism < 1) {
+            throw new IllegalArgumentException("Convert parallelism must be greater than 0");
+        }
+        this.convertParallelism = convertParallelism;
+        return this;
+    }
+
+    public DefaultStreamExcelBuilder<T> prefetchImages(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Image prefetch parallelism must be greater than 0");
+        }
+        this.imagePrefetchParallelism = parallelism;
+        return this;
+    }
+
+    public DefaultStreamExcelBuilder<T> compression(CompressionProfile compressionProfile) {
+        this.context.compressionProfile = Objects.requireNonNull(compressionProfile);
+        return this;
+    }
+
+    public DefaultStreamExcelBuilder<T> batchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be greater than 0");
+        }
+        this.context.batchSize = batchSize;
+        return this;
+    }
+
+    DefaultStreamExcelBuilder<T> exportScheduler(ExportScheduler exportScheduler) {
+        this.context.exportScheduler = Objects.requireNonNull(exportScheduler);
         return this;
     }
 
@@ -310,7 +397,7 @@ public class DefaultStreamExcelBuilder<T> extends AbstractSimpleExcelBuilder imp
     }
 
     /**
-     * 流式构建启动，包含一些初始化操作
+     * 流式构建启动，包含一些初始化操作。
      *
      * @return DefaultExcelBuilder
      */
@@ -321,6 +408,10 @@ public class DefaultStreamExcelBuilder<T> extends AbstractSimpleExcelBuilder imp
         } else {
             ClassFieldContainer classFieldContainer = ReflectUtil.getAllFieldsOfClass(dataType);
             filteredFields = getFilteredFields(classFieldContainer, groups);
+            this.getWriteColumns();
+        }
+        if (workbook == null && WorkbookType.isNativeXlsx(configuration.workbookType)) {
+            this.checkNativeXlsxSupported();
         }
         context.styleParser = styleParser;
         htmlToExcelStreamFactory = new HtmlToExcelStreamFactory(context);
@@ -335,6 +426,35 @@ public class DefaultStreamExcelBuilder<T> extends AbstractSimpleExcelBuilder imp
             htmlToExcelStreamFactory.appendTitles(head);
         }
         htmlToExcelStreamFactory.start(table, workbook);
+        registration = context.exportScheduler.register(this, htmlToExcelStreamFactory::abandon);
+        if (imagePrefetchParallelism > 0) {
+            AtomicInteger threadCount = new AtomicInteger();
+            // 空闲线程自动回收，构建器被丢弃时不残留线程
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(imagePrefetchParallelism, imagePrefetchParallelism,
+                    60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                Thread thread = new Thread(r, "myexcel-image-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.allowCoreThreadTimeOut(true);
+            imagePrefetchExecutor = executor;
+        }
+        if (convertParallelism > 1) {
+            convertStage = new ConvertStage<>(convertParallelism, this::createTrList, htmlToExcelStreamFactory::append);
+        }
+        Executor executor = context.executorService == null ? ForkJoinPool.commonPool() : context.executorService;
+        asyncAppendStage = new AsyncAppendStage<>(this::createTrList, this::tryAppendTrList, executor, context.batchSize);
+        // 写入线程仅弱引用构建器，以便构建器被丢弃时可回收
+        WeakReference<AsyncAppendStage<T>> asyncAppendStageRef = new WeakReference<>(asyncAppendStage);
+        htmlToExcelStreamFactory.onSpaceAvailable(() -> {
+            AsyncAppendStage<T> stage = asyncAppendStageRef.get();
+            if (stage != null) {
+                stage.signal();
+            }
+        });
+        if (convertStage != null) {
+            convertStage.onIdle(asyncAppendStage::signal);
+        }
 
         if (excel != null && Files.exists(excel)) {
             log.info("start reading existing excel data.");
@@ -348,6 +468,18 @@ public class DefaultStreamExcelBuilder<T> extends AbstractSimpleExcelBuilder imp
         return this;
     }
 
+    private void checkNativeXlsxSupported() {
+        if (!configuration.nameMapping.isEmpty()) {
+            throw new IllegalArgumentException("The native xlsx workbook does not support name manager");
+        }
+        if (context.startSheetConsumer != null) {
+            throw new IllegalArgumentException("The native xlsx workbook does not support sheet consumer");
+        }
+        if (!isMapBuild) {
+            this.checkNativeXlsxColumns();
+        }
+    }
+
     @Override
     public void append(List<T> dataList) {
         if (cancel) {
@@ -357,12 +489,30 @@ public class DefaultStreamExcelBuilder<T> extends AbstractSimpleExcelBuilder imp
         if (dataList == null || dataList.isEmpty()) {
             return;
         }
+        this.awaitAsyncAppend();
+        int batchSize = context.batchSize;
+        if (convertStage != null) {
+            for (int i = 0, size = dataList.size(); i < size; i += batchSize) {
+                convertStage.submit(dataList.subList(i, Math.min(i + batchSize, size)));
+            }
+            return;
+        }
+        List<Tr> batch = new ArrayList<>(Math.min(batchSize, dataList.size()));
         for (T data : dataList) {
-            this.append(data);
+            if (data == null) {
+                continue;
+            }
+            batch.addAll(this.doCreateTrList(data));
+            if (batch.size() >= batchSize) {
+                htmlToExcelStreamFactory.append(this.prefetchImages(batch));
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            htmlToExcelStreamFactory.append(this.prefetchImages(batch));
         }
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public void append(T data) {
         if (cancel) {
@@ -372,25 +522,155 @@ public class DefaultStreamExcelBuilder<T> extends AbstractSimpleExcelBuilder imp
         if (data == null) {
             return;
         }
+        this.awaitAsyncAppend();
+        if (convertStage != null) {
+            convertStage.submit(Collections.singletonList(data));
+            return;
+        }
+        htmlToExcelStreamFactory.append(this.createTrList(data));
+    }
+
+    /**
+     * 非阻塞追加，数据按调用顺序放入缓冲区，全部放入后完成，调用线程不会被阻塞
+     *
+     * @param dataList 数据
+     * @return 完成信号
+     */
+    public CompletionStage<Void> appendAsync(List<T> dataList) {
+        if (cancel) {
+            log.info("Canceled build task");
+            return CompletableFuture.completedFuture(null);
+        }
+        if (dataList == null || dataList.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return asyncAppendStage.submit(dataList);
+    }
+
+    /**
+     * 尝试追加，整批放入缓冲区，缓冲区已满、内存预算不足或仍有未放入的非阻塞追加时立即返回false。
+     * 转换数据前先预判空间，空间不足时不做转换；已取消时数据被丢弃，返回false
+     *
+     * @param dataList 数据
+     * @return 是否追加成功
+     */
+    public boolean tryAppend(List<T> dataList) {
+        if (cancel) {
+            log.info("Canceled build task");
+            return false;
+        }
+        if (dataList == null || dataList.isEmpty()) {
+            return true;
+        }
+        if (!asyncAppendStage.isEmpty() || (convertStage != null && !convertStage.isIdle())
+                || !htmlToExcelStreamFactory.hasRoom(dataList.size())) {
+            return false;
+        }
+        List<Tr> trList = new ArrayList<>(dataList.size());
+        for (T data : dataList) {
+            if (data != null) {
+                trList.addAll(this.createTrList(data));
+            }
+        }
+        return this.tryAppendTrList(trList);
+    }
+
+    int getBatchSize() {
+        return context.batchSize;
+    }
+
+    boolean isStarted() {
+        return htmlToExcelStreamFactory != null;
+    }
+
+    /**
+     * 直接追加已创建的行，行内容由调用方按列类型填充
+     *
+     * @param trList 行
+     */
+    void appendTrList(List<Tr> trList) {
+        if (cancel) {
+            log.info("Canceled build task");
+            return;
+        }
+        this.awaitAsyncAppend();
+        if (convertStage != null) {
+            convertStage.await();
+        }
+        htmlToExcelStreamFactory.append(trList);
+    }
+
+    /**
+     * 阻塞追加前等待已提交的非阻塞追加全部放入缓冲区，保证顺序
+     */
+    private void awaitAsyncAppend() {
+        if (asyncAppendStage != null && !asyncAppendStage.isEmpty()) {
+            asyncAppendStage.await();
+        }
+    }
+
+    private boolean tryAppendTrList(List<Tr> trList) {
+        // 并行转换中的数据尚未放入缓冲区，保证顺序
+        if (convertStage != null && !convertStage.isIdle()) {
+            return false;
+        }
+        return htmlToExcelStreamFactory.tryAppend(trList);
+    }
+
+    private List<Tr> createTrList(T data) {
+        return this.prefetchImages(this.doCreateTrList(data));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Tr> doCreateTrList(T data) {
         if (isMapBuild) {
             List<Pair<? extends Class, ?>> contents = assemblingMapContents((Map<String, Object>) data);
-            this.appendTr(contents);
-            return;
+            return Collections.singletonList(this.createTr(contents));
         }
         if (hasMultiColumn) {
             List<List<Pair<? extends Class, ?>>> contents = this.getMultiRenderContent(data, filteredFields);
+            List<Tr> trList = new ArrayList<>(contents.size());
             for (List<Pair<? extends Class, ?>> content : contents) {
-                this.appendTr(content);
+                trList.add(this.createTr(content));
             }
-        } else {
-            List<Pair<? extends Class, ?>> contents = this.getOriginalRenderContent(data, filteredFields);
-            this.appendTr(contents);
+            return trList;
         }
+        List<Pair<? extends Class, ?>> contents = this.getOriginalRenderContent(data, filteredFields);
+        return Collections.singletonList(this.createTr(contents));
     }
 
-    private void appendTr(List<Pair<? extends Class, ?>> contents) {
-        Tr tr = this.createTr(contents);
-        htmlToExcelStreamFactory.append(tr);
+    /**
+     * 在图片预加载线程池中并行读取图片流，写入线程仅需按内容摘要取用图片池，
+     * 图片文件已由图片池按路径缓存，无需预加载
+     *
+     * @param trList 行
+     * @return 行
+     */
+    private List<Tr> prefetchImages(List<Tr> trList) {
+        ExecutorService executor = imagePrefetchExecutor;
+        if (executor == null) {
+            return trList;
+        }
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (Tr tr : trList) {
+            for (Td td : tr.tdList) {
+                if (td.fileIs != null && ContentTypeEnum.isImage(td.tdContentType)) {
+                    futures.add(CompletableFuture.runAsync(() -> {
+                        td.imageContent = ImageContent.of(td.fileIs);
+                        td.fileIs = null;
+                    }, executor));
+                }
+            }
+        }
+        try {
+            futures.forEach(CompletableFuture::join);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new ExcelBuildException("Prefetch image failure", e.getCause());
+        }
+        return trList;
     }
 
     public <E> void append(String templateFilePath, Map<String, E> renderData) {
@@ -435,26 +715,93 @@ public class DefaultStreamExcelBuilder<T> extends AbstractSimpleExcelBuilder imp
         }
     }
 
+    /**
+     * 分页追加，在线程池中最多预先获取prefetchDepth页，未指定线程池时使用共享的获取线程池，按页码顺序追加，某页无数据时结束。
+     * 预先获取可能请求到最后一页之后的页码，pageFetcher会被多个线程并发调用
+     *
+     * @param pageFetcher   分页数据获取，需线程安全
+     * @param prefetchDepth 预先获取页数
+     */
+    public void pagedAppend(PageFetcher<T> pageFetcher, int prefetchDepth) {
+        if (prefetchDepth < 1) {
+            throw new IllegalArgumentException("Prefetch depth must be greater than 0");
+        }
+        ExecutorService executor = context.executorService == null ? FetchExecutorHolder.INSTANCE : context.executorService;
+        Deque<Future<List<T>>> prefetchedPages = new ArrayDeque<>(prefetchDepth);
+        try {
+            int nextPageNo = 1;
+            for (; nextPageNo <= prefetchDepth; nextPageNo++) {
+                prefetchedPages.add(this.fetchPage(pageFetcher, nextPageNo, executor));
+            }
+            while (!cancel) {
+                List<T> page;
+                try {
+                    page = prefetchedPages.poll().get();
+                } catch (ExecutionException e) {
+                    throw new ExcelBuildException("Fetch page failure", e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ExcelBuildException("Interrupted while fetching page", e);
+                }
+                if (page == null || page.isEmpty()) {
+                    break;
+                }
+                this.append(page);
+                prefetchedPages.add(this.fetchPage(pageFetcher, nextPageNo++, executor));
+            }
+        } finally {
+            // 中断仍在获取中的页
+            prefetchedPages.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private Future<List<T>> fetchPage(PageFetcher<T> pageFetcher, int pageNo, ExecutorService executor) {
+        return executor.submit(() -> pageFetcher.fetch(pageNo));
+    }
+
     @Override
     public Workbook build() {
-        joinAsyncAppendFutures();
+        this.finishAppend();
         return htmlToExcelStreamFactory.build();
     }
 
     @Override
     public List<Path> buildAsPaths() {
-        joinAsyncAppendFutures();
+        this.finishAppend();
         return htmlToExcelStreamFactory.buildAsPaths();
     }
 
     @Override
     public Path buildAsZip(String fileName) {
-        joinAsyncAppendFutures();
+        this.finishAppend();
         return htmlToExcelStreamFactory.buildAsZip(fileName);
     }
 
+    /**
+     * 构建并写入输出流，仅有一个文件时直接写入该文件，否则以zip格式写入，不关闭输出流
+     *
+     * @param outputStream 输出流
+     */
+    public void buildTo(OutputStream outputStream) {
+        this.writeTo(Channels.newChannel(outputStream));
+    }
+
+    /**
+     * 构建并写入通道，仅有一个文件时直接传输该文件，否则以zip格式写入，不关闭通道
+     *
+     * @param channel 通道
+     */
+    public void writeTo(WritableByteChannel channel) {
+        this.finishAppend();
+        htmlToExcelStreamFactory.buildTo(channel);
+    }
+
     @Override
     public void close() throws IOException {
+        if (asyncAppendStage != null) {
+            asyncAppendStage.cancel();
+        }
+        this.shutdownStages();
         if (htmlToExcelStreamFactory != null) {
             htmlToExcelStreamFactory.clear();
             htmlToExcelStreamFactory = null;
@@ -463,6 +810,10 @@ public class DefaultStreamExcelBuilder<T> extends AbstractSimpleExcelBuilder imp
 
     public void cancel() {
         cancel = true;
+        if (asyncAppendStage != null) {
+            asyncAppendStage.cancel();
+        }
+        this.shutdownStages();
         htmlToExcelStreamFactory.cancel();
     }
 
@@ -474,6 +825,10 @@ public class DefaultStreamExcelBuilder<T> extends AbstractSimpleExcelBuilder imp
     }
 
     private <E> void doAppend(Map<String, E> renderData) {
+        this.awaitAsyncAppend();
+        if (convertStage != null) {
+            convertStage.await();
+        }
         List<Table> tables;
         try {
             tables = templateHandler.render(renderData, new ParseConfig(configuration.widthStrategy));
@@ -484,7 +839,33 @@ public class DefaultStreamExcelBuilder<T> extends AbstractSimpleExcelBuilder imp
             return;
         }
         for (Table table : tables) {
-            table.trList.forEach(htmlToExcelStreamFactory::append);
+            htmlToExcelStreamFactory.append(table.trList);
+        }
+    }
+
+    /**
+     * 等待已追加数据全部交给写入线程，随后释放转换及图片预加载线程
+     */
+    private void finishAppend() {
+        try {
+            this.joinAsyncAppendFutures();
+        } finally {
+            this.shutdownStages();
+        }
+    }
+
+    private void shutdownStages() {
+        if (registration != null) {
+            registration.unregister();
+            registration = null;
+        }
+        if (convertStage != null) {
+            convertStage.shutdown();
+            convertStage = null;
+        }
+        if (imagePrefetchExecutor != null) {
+            imagePrefetchExecutor.shutdownNow();
+            imagePrefetchExecutor = null;
         }
     }
 
@@ -492,5 +873,25 @@ public class DefaultStreamExcelBuilder<T> extends AbstractSimpleExcelBuilder imp
         if (!asyncAppendFutures.isEmpty()) {
             asyncAppendFutures.forEach(CompletableFuture::join);
         }
+        if (asyncAppendStage != null) {
+            asyncAppendStage.await();
+        }
+        if (convertStage != null) {
+            convertStage.await();
+        }
+    }
+
+    /**
+     * 未指定线程池时分页获取共用的线程池，空闲线程自动回收
+     */
+    private static final class FetchExecutorHolder {
+
+        private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+        private static final ExecutorService INSTANCE = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "myexcel-fetch-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 }
@@ -107,6 +107,11 @@ public final class ExcelColumnMapping {
 
     public DropdownList dropdownList;
 
+    /**
+     * 是否合并相邻相同值
+     */
+    public boolean mergeSame;
+
     public static ExcelColumnMapping mapping(ExcelColumn excelColumn) {
         ExcelColumnMapping result = new ExcelColumnMapping();
         result.title = excelColumn.title();
@@ -131,6 +136,7 @@ public final class ExcelColumnMapping {
         result.fileType = excelColumn.fileType();
         result.formula = excelColumn.formula();
         result.customWriteConverter = excelColumn.writeConverter();
+        result.mergeSame = excelColumn.mergeSame();
         // 提示
         Prompt prompt = excelColumn.prompt();
         if (StringUtil.isNotBlank(prompt.text())) {
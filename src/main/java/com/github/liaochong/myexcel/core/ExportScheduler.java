@@ -0,0 +1,200 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core;
+
+import com.github.liaochong.myexcel.exception.ExcelBuildException;
+import org.slf4j.Logger;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 流式导出写入调度器，进程内所有流式导出的写入线程均由此分配。
+ * 同时运行的导出数量超出上限时按提交顺序排队，排队数量超出上限时拒绝新的导出。
+ * 导出自启动起占用一个写入线程或排队位置，直至构建、取消或关闭，已启动后被丢弃的导出在回收后释放
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public final class ExportScheduler {
+
+    private static final Logger log = org.slf4j.LoggerFactory.getLogger(ExportScheduler.class);
+
+    /**
+     * 默认同时运行的最大导出数量
+     */
+    private static final int DEFAULT_MAX_CONCURRENCY = Math.max(Runtime.getRuntime().availableProcessors() << 1, 4);
+
+    private static final ExportScheduler INSTANCE = new ExportScheduler();
+
+    private final AtomicInteger threadCount = new AtomicInteger();
+
+    private final ThreadPoolExecutor executor;
+    /**
+     * 最大排队导出数量
+     */
+    private volatile int maxPending = Integer.MAX_VALUE;
+
+    /**
+     * 独立的调度器，仅供同包内使用，如测试中与进程内其他导出隔离
+     */
+    ExportScheduler() {
+        executor = new ThreadPoolExecutor(DEFAULT_MAX_CONCURRENCY, DEFAULT_MAX_CONCURRENCY, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "myexcel-exec-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    public static ExportScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 设置同时运行的最大导出数量，默认为处理器数量的两倍，且不少于4
+     *
+     * @param maxConcurrency 最大导出数量
+     */
+    public synchronized void setMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Max concurrency must be greater than 0");
+        }
+        if (maxConcurrency < executor.getMaximumPoolSize()) {
+            executor.setCorePoolSize(maxConcurrency);
+            executor.setMaximumPoolSize(maxConcurrency);
+        } else {
+            executor.setMaximumPoolSize(maxConcurrency);
+            executor.setCorePoolSize(maxConcurrency);
+        }
+    }
+
+    public int getMaxConcurrency() {
+        return executor.getMaximumPoolSize();
+    }
+
+    /**
+     * 设置最大排队导出数量，超出时新的导出启动失败，默认不限制
+     *
+     * @param maxPending 最大排队数量
+     */
+    public void setMaxPending(int maxPending) {
+        if (maxPending < 0) {
+            throw new IllegalArgumentException("Max pending must not be less than 0");
+        }
+        this.maxPending = maxPending;
+    }
+
+    public int getMaxPending() {
+        return maxPending;
+    }
+
+    /**
+     * 排队等待写入线程的导出数量
+     *
+     * @return 排队数量
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * 正在写入的导出数量
+     *
+     * @return 导出数量
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    synchronized void execute(Runnable receiver) {
+        if (executor.getActiveCount() >= executor.getMaximumPoolSize() && executor.getQueue().size() >= maxPending) {
+            throw new ExcelBuildException("Too many pending exports, max pending:" + maxPending);
+        }
+        executor.execute(receiver);
+    }
+
+    /**
+     * 登记导出的持有者，持有者不可达时执行释放操作，释放操作不可引用持有者
+     *
+     * @param owner   持有者
+     * @param release 释放操作
+     * @return 登记，持有者正常结束时注销
+     */
+    Registration register(Object owner, Runnable release) {
+        Registration registration = new Registration(owner, release);
+        Reaper.REGISTRATIONS.add(registration);
+        return registration;
+    }
+
+    static final class Registration extends PhantomReference<Object> {
+
+        private final Runnable release;
+
+        private Registration(Object owner, Runnable release) {
+            super(owner, Reaper.QUEUE);
+            this.release = release;
+        }
+
+        void unregister() {
+            if (Reaper.REGISTRATIONS.remove(this)) {
+                this.clear();
+            }
+        }
+    }
+
+    /**
+     * 回收线程，持有者被回收后执行其释放操作
+     */
+    private static final class Reaper {
+
+        private static final ReferenceQueue<Object> QUEUE = new ReferenceQueue<>();
+
+        private static final Set<Registration> REGISTRATIONS = ConcurrentHashMap.newKeySet();
+
+        static {
+            Thread thread = new Thread(Reaper::reap, "myexcel-reaper");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private static void reap() {
+            while (true) {
+                Registration registration;
+                try {
+                    registration = (Registration) QUEUE.remove();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (!REGISTRATIONS.remove(registration)) {
+                    continue;
+                }
+                log.warn("An export was abandoned without build, cancel or close, releasing it");
+                try {
+                    registration.release.run();
+                } catch (Throwable e) {
+                    log.error("Failed to release abandoned export", e);
+                }
+            }
+        }
+    }
+}
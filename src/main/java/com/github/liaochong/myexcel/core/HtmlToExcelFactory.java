@@ -30,7 +30,6 @@ import org.slf4j.Logger;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.NoSuchFileException;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -170,6 +169,7 @@ public class HtmlToExcelFactory extends AbstractExcelFactory {
         } else {
             buildTablesWithOneSheet(tables);
         }
+        this.flushDataValidations();
         // 3.创建名称管理
         this.createNameManager();
         log.info("Build excel takes {} ms", System.currentTimeMillis() - startTime);
@@ -256,7 +256,7 @@ public class HtmlToExcelFactory extends AbstractExcelFactory {
             this.createRow(tr, sheet);
             tr.tdList = null;
         }
-        stagingTds = new LinkedList<>();
+        stagingTds.clear();
         table.trList = null;
     }
 
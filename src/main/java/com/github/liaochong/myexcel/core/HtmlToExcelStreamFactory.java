@@ -20,35 +20,46 @@ import com.github.liaochong.myexcel.core.parser.StyleParser;
 import com.github.liaochong.myexcel.core.parser.Table;
 import com.github.liaochong.myexcel.core.parser.Td;
 import com.github.liaochong.myexcel.core.parser.Tr;
+import com.github.liaochong.myexcel.core.strategy.WaitStrategy;
+import com.github.liaochong.myexcel.core.strategy.WidthStrategy;
 import com.github.liaochong.myexcel.exception.ExcelBuildException;
 import com.github.liaochong.myexcel.utils.FileExportUtil;
 import com.github.liaochong.myexcel.utils.StringUtil;
 import com.github.liaochong.myexcel.utils.TdUtil;
 import com.github.liaochong.myexcel.utils.TempFileOperator;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.apache.poi.ss.usermodel.PrintSetup;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.slf4j.Logger;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
 /**
  * HtmlToExcelStreamFactory 流工厂
@@ -59,6 +70,7 @@ import java.util.zip.ZipOutputStream;
 class HtmlToExcelStreamFactory extends AbstractExcelFactory {
 
     private static final Tr STOP_FLAG = new Tr(-1, 0);
+    private static final TrBatch STOP_BATCH = new TrBatch(Collections.singletonList(STOP_FLAG), 0);
     private static final Logger log = org.slf4j.LoggerFactory.getLogger(HtmlToExcelStreamFactory.class);
 
     private int maxRowCountOfSheet = XLSX_MAX_ROW_COUNT;
@@ -92,23 +104,63 @@ class HtmlToExcelStreamFactory extends AbstractExcelFactory {
      */
     private final List<Path> tempFilePaths = new ArrayList<>();
 
-    private final List<CompletableFuture<Void>> futures = new LinkedList<>();
+    /**
+     * 异步输出中的临时文件
+     */
+    private final Map<Path, CompletableFuture<Void>> futures = new HashMap<>();
 
     /**
-     * 接收线程
+     * 接收任务，由写入调度器执行
      */
-    volatile Thread receiveThread;
+    private volatile Future<?> receiveFuture;
 
     private final HtmlToExcelStreamFactoryContext context;
+    /**
+     * 是否为原生xlsx写入
+     */
+    private boolean nativeXlsx;
+    /**
+     * 原生xlsx写入器
+     */
+    private XlsxStreamWriter xlsxStreamWriter;
 
-    public HtmlToExcelStreamFactory(HtmlToExcelStreamFactoryContext context) {
-        this.context = context;
-    }
+    /**
+     * 待写入行缓冲区
+     */
+    private final RingBuffer<TrBatch> trWaitQueue;
+    /**
+     * 已放入缓冲区尚未写完的行所占预算
+     */
+    private final AtomicLong heldBytes = new AtomicLong();
+    /**
+     * 写入线程正在写入的批次所占预算
+     */
+    private long writingBytes;
+    /**
+     * 最近一批行的每行估算占用，用于追加前预判预算
+     */
+    private volatile long rowBytes;
+    /**
+     * 缓冲区或预算腾出空间时的通知
+     */
+    private volatile Runnable spaceListener;
 
     /**
-     * 消费者是否完结
+     * 消费者完结信号
      */
-    private volatile boolean consumeFinished = false;
+    private final CountDownLatch consumeLatch = new CountDownLatch(1);
+    /**
+     * 相邻相同值合并
+     */
+    private final SameValueMerger sameValueMerger = new SameValueMerger();
+
+    public HtmlToExcelStreamFactory(HtmlToExcelStreamFactoryContext context) {
+        this.context = context;
+        // 缓冲区按批次存放，容量由行数换算，保持原有内存占用
+        int batchCapacity = (int) ((context.waitQueueSize + (long) context.batchSize - 1) / context.batchSize);
+        this.trWaitQueue = new RingBuffer<>(Math.max(batchCapacity, 1), context.waitStrategy);
+        this.compressionProfile = context.compressionProfile;
+    }
 
     public void start(Table table, Workbook workbook) {
         log.info("Start build excel");
@@ -119,17 +171,134 @@ class HtmlToExcelStreamFactory extends AbstractExcelFactory {
         if (table != null && table.caption != null) {
             sheetName = table.caption;
         }
-        Thread thread = new Thread(this::receive);
-        thread.setName("myexcel-exec-" + thread.getId());
-        thread.start();
+        FutureTask<Void> task = new FutureTask<Void>(this::receive, null) {
+            @Override
+            protected void done() {
+                // 排队中被取消时接收任务不会执行，需在此释放等待
+                if (this.isCancelled()) {
+                    exception = true;
+                    trWaitQueue.close();
+                    MemoryGovernor.getInstance().releaseAll(heldBytes);
+                    consumeLatch.countDown();
+                }
+            }
+        };
+        receiveFuture = task;
+        context.exportScheduler.execute(task);
+    }
+
+    @Override
+    public ExcelFactory workbookType(WorkbookType workbookType) {
+        if (WorkbookType.isNativeXlsx(workbookType) && workbook == null) {
+            nativeXlsx = true;
+            return this;
+        }
+        return super.workbookType(workbookType);
     }
 
     public void appendTitles(List<Tr> trList) {
         this.titles = trList;
-        trList.forEach(this::append);
+        this.append(trList);
     }
 
     public void append(Tr tr) {
+        this.checkAppendable();
+        if (tr == null) {
+            log.warn("This tr is null and will be discarded");
+            return;
+        }
+        this.putTrToQueue(Collections.singletonList(tr));
+    }
+
+    /**
+     * 批量追加，整批放入缓冲区，由接收线程一次性消费
+     *
+     * @param trList trList
+     */
+    public void append(List<Tr> trList) {
+        this.checkAppendable();
+        if (trList == null || trList.isEmpty()) {
+            return;
+        }
+        if (trList.contains(null)) {
+            log.warn("The null tr in this batch will be discarded");
+            trList = trList.stream().filter(Objects::nonNull).collect(Collectors.toList());
+            if (trList.isEmpty()) {
+                return;
+            }
+        }
+        this.putTrToQueue(trList);
+    }
+
+    /**
+     * 尝试批量追加，缓冲区已满或预算不足时立即返回false
+     *
+     * @param trList trList
+     * @return 是否追加成功
+     */
+    public boolean tryAppend(List<Tr> trList) {
+        this.checkAppendable();
+        if (trList == null || trList.isEmpty()) {
+            return true;
+        }
+        if (trList.contains(null)) {
+            log.warn("The null tr in this batch will be discarded");
+            trList = trList.stream().filter(Objects::nonNull).collect(Collectors.toList());
+            if (trList.isEmpty()) {
+                return true;
+            }
+        }
+        TrBatch batch = this.newBatch(trList);
+        if (!MemoryGovernor.getInstance().tryAcquire(heldBytes, batch.bytes)) {
+            return false;
+        }
+        if (!trWaitQueue.offer(batch)) {
+            MemoryGovernor.getInstance().release(heldBytes, batch.bytes);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 预判能否立即追加指定行数，缓冲区已满或按最近每行占用估算预算不足时返回false，
+     * 供调用方在转换数据前判断，返回true时追加仍可能失败
+     *
+     * @param rowCount 行数
+     * @return 是否有空间
+     */
+    boolean hasRoom(int rowCount) {
+        this.checkAppendable();
+        return trWaitQueue.size() < trWaitQueue.capacity()
+                && MemoryGovernor.getInstance().hasRoom(heldBytes, rowBytes * rowCount);
+    }
+
+    private TrBatch newBatch(List<Tr> trList) {
+        if (nativeXlsx) {
+            // 在调用方线程校验，不支持的内容不进入缓冲区
+            XlsxStreamWriter.checkSupported(trList);
+        }
+        long bytes = MemoryGovernor.estimate(trList);
+        rowBytes = bytes / trList.size();
+        return new TrBatch(trList, bytes);
+    }
+
+    /**
+     * 设置空间通知，写入线程每消费一批数据时调用，需立即返回
+     *
+     * @param spaceListener 通知
+     */
+    void onSpaceAvailable(Runnable spaceListener) {
+        this.spaceListener = spaceListener;
+    }
+
+    private void signalSpaceAvailable() {
+        Runnable listener = spaceListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    private void checkAppendable() {
         if (exception) {
             log.error("Received a termination command,an exception occurred while processing");
             throw new UnsupportedOperationException("Received a termination command");
@@ -138,33 +307,33 @@ class HtmlToExcelStreamFactory extends AbstractExcelFactory {
             log.error("Received a termination command,the build method has been called");
             throw new UnsupportedOperationException("Received a termination command");
         }
-        if (tr == null) {
-            log.warn("This tr is null and will be discarded");
-            return;
-        }
-        this.putTrToQueue(tr);
     }
 
     private void receive() {
         try {
-            if (this.workbook == null) {
-                workbookType(WorkbookType.SXLSX);
-            }
-            if (isHssf) {
-                maxRowCountOfSheet = XLS_MAX_ROW_COUNT;
-            }
-            initCellStyle(this.workbook);
-            receiveThread = Thread.currentThread();
-            this.sheet = workbook.getSheet(sheetName);
-            if (this.sheet == null) {
-                this.sheet = this.createSheet(sheetName);
+            if (nativeXlsx) {
+                this.initNativeWriter();
             } else {
-                rowNum = count = this.sheet.getLastRowNum() + 1;
-                if (rowNum > 0) {
-                    context.trWaitQueue.clear();
+                if (this.workbook == null) {
+                    workbookType(WorkbookType.SXLSX);
+                }
+                if (isHssf) {
+                    maxRowCountOfSheet = XLS_MAX_ROW_COUNT;
+                }
+                initCellStyle(this.workbook);
+                this.sheet = workbook.getSheet(sheetName);
+                if (this.sheet == null) {
+                    this.sheet = this.createSheet(sheetName);
+                } else {
+                    rowNum = count = this.sheet.getLastRowNum() + 1;
+                    if (rowNum > 0) {
+                        this.clearQueue();
+                    }
                 }
             }
-            Tr tr = this.getTrFromQueue();
+            List<Tr> batch = this.getTrBatchFromQueue();
+            int batchIndex = 0;
+            Tr tr = batch.get(batchIndex);
             if (maxColIndex == 0) {
                 int tdSize = tr.tdList.size();
                 maxColIndex = tdSize > 0 ? tdSize - 1 : 0;
@@ -175,7 +344,11 @@ class HtmlToExcelStreamFactory extends AbstractExcelFactory {
                 if (contentLength > 255) {
                     contentLength = 255;
                 }
-                sheet.setColumnWidth(key, contentLength << 8);
+                if (nativeXlsx) {
+                    xlsxStreamWriter.setColumnWidth(key, contentLength << 8);
+                } else {
+                    sheet.setColumnWidth(key, contentLength << 8);
+                }
             });
             // 构建名称管理器
             this.createNameManager();
@@ -197,21 +370,47 @@ class HtmlToExcelStreamFactory extends AbstractExcelFactory {
                         this.colWidthMap.put(k, v);
                     }
                 });
-                tr = this.getTrFromQueue();
+                if (++batchIndex == batch.size()) {
+                    batch = this.getTrBatchFromQueue();
+                    batchIndex = 0;
+                }
+                tr = batch.get(batchIndex);
             }
-            consumeFinished = true;
             log.info("Total size:{}", totalSize);
         } catch (Exception e) {
             exception = true;
-            context.trWaitQueue.clear();
-            context.trWaitQueue = null;
+            trWaitQueue.close();
+            this.clearQueue();
             clear();
             log.error("An exception occurred while processing", e);
             throw new ExcelBuildException("An exception occurred while processing", e);
+        } finally {
+            MemoryGovernor.getInstance().releaseAll(heldBytes);
+            consumeLatch.countDown();
+        }
+    }
+
+    private void clearQueue() {
+        TrBatch batch;
+        while ((batch = trWaitQueue.poll()) != null) {
+            MemoryGovernor.getInstance().release(heldBytes, batch.bytes);
         }
     }
 
     private void createNextSheet() {
+        if (rowNum >= maxRowCountOfSheet) {
+            this.closeSameValueRuns();
+            this.flushDataValidations();
+        }
+        if (nativeXlsx && rowNum >= maxRowCountOfSheet) {
+            sheetNum++;
+            this.setNativeColWidth(colWidthMap);
+            colWidthMap = new HashMap<>();
+            this.createNativeSheet(sheetName + " (" + sheetNum + ")");
+            rowNum = 0;
+            this.setTitles();
+            return;
+        }
         if (rowNum >= maxRowCountOfSheet) {
             sheetNum++;
             this.setColWidth(colWidthMap, sheet, maxColIndex);
@@ -243,8 +442,9 @@ class HtmlToExcelStreamFactory extends AbstractExcelFactory {
             Td td = tr.tdList.get(i);
             if (td.th) {
                 td.style = context.styleParser.getTitleStyle("title&" + td.col);
+                td.styleId = context.styleParser.getStyleId(td.style);
             } else {
-                td.style = context.styleParser.getCellStyle(i, td.tdContentType, td.format);
+                context.styleParser.setCellStyle(td, i);
             }
             if (isCustomWidth) {
                 String width = td.style.get("width");
@@ -255,26 +455,66 @@ class HtmlToExcelStreamFactory extends AbstractExcelFactory {
         }
     }
 
-    private Tr getTrFromQueue() throws InterruptedException {
-        Tr tr = context.trWaitQueue.poll(15, TimeUnit.MINUTES);
-        if (tr == null) {
+    private List<Tr> getTrBatchFromQueue() throws InterruptedException {
+        // 上一批次已写完，释放其预算
+        MemoryGovernor.getInstance().release(heldBytes, writingBytes);
+        writingBytes = 0;
+        this.signalSpaceAvailable();
+        TrBatch batch = trWaitQueue.poll(15, TimeUnit.MINUTES);
+        if (batch == null) {
+            // 接收任务被取消时缓冲区已关闭，中断可能已被其他操作吞掉
+            if (receiveFuture.isCancelled()) {
+                throw new IllegalStateException("Receive has been cancelled");
+            }
             throw new IllegalStateException("Get tr failure,timeout 15 minutes.");
         }
-        return tr;
+        writingBytes = batch.bytes;
+        this.signalSpaceAvailable();
+        return batch.trList;
     }
 
     @Override
     public Workbook build() {
+        if (nativeXlsx) {
+            return this.buildNativeWorkbook();
+        }
         waiting();
+        this.closeSameValueRuns();
+        this.flushDataValidations();
         this.setColWidth(colWidthMap, sheet, maxColIndex);
         log.info("Build Excel success,takes {} ms", System.currentTimeMillis() - startTime);
         return workbook;
     }
 
+    /**
+     * 原生写入没有工作簿对象，写完文件后再读取为XSSFWorkbook，数据量大时应使用buildAsPaths或buildAsZip
+     *
+     * @return workbook
+     */
+    private Workbook buildNativeWorkbook() {
+        waiting();
+        this.closeSameValueRuns();
+        this.setNativeColWidth(colWidthMap);
+        Path path = xlsxStreamWriter.getPath();
+        try {
+            xlsxStreamWriter.finish();
+            try (InputStream in = Files.newInputStream(path)) {
+                workbook = new XSSFWorkbook(in);
+            }
+        } catch (IOException e) {
+            clear();
+            throw new ExcelBuildException("Failed to build native xlsx workbook", e);
+        }
+        tempFilePaths.remove(path);
+        TempFileOperator.deleteTempFile(path);
+        log.info("Build Excel success,takes {} ms", System.currentTimeMillis() - startTime);
+        return workbook;
+    }
+
     List<Path> buildAsPaths() {
         waiting();
         this.storeToTempFile();
-        futures.forEach(CompletableFuture::join);
+        futures.values().forEach(CompletableFuture::join);
         log.info("Build Excel success,takes {} ms", System.currentTimeMillis() - startTime);
         return tempFilePaths.stream().filter(path -> Objects.nonNull(path) && path.toFile().exists()).collect(Collectors.toList());
     }
@@ -284,30 +524,59 @@ class HtmlToExcelStreamFactory extends AbstractExcelFactory {
             throw new IllegalStateException("An exception occurred while processing");
         }
         this.stop = true;
-        this.putTrToQueue(STOP_FLAG);
-        while (!consumeFinished) {
+        this.putBatchToQueue(STOP_BATCH);
+        try {
             // wait all tr received
-            if (exception) {
-                throw new IllegalThreadStateException("An exception occurred while processing");
+            consumeLatch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExcelBuildException("Interrupted while waiting for all tr received", e);
+        }
+        if (exception) {
+            throw new IllegalThreadStateException("An exception occurred while processing");
+        }
+    }
+
+    private void putTrToQueue(List<Tr> trList) {
+        TrBatch batch = this.newBatch(trList);
+        try {
+            if (!MemoryGovernor.getInstance().acquire(heldBytes, batch.bytes, 1, TimeUnit.HOURS)) {
+                throw new IllegalStateException("Acquire memory budget failure,timeout 1 hour.");
             }
+        } catch (InterruptedException e) {
+            this.cancelReceive();
+            throw new ExcelBuildException("Put tr to queue failure", e);
+        }
+        try {
+            this.putBatchToQueue(batch);
+        } catch (RuntimeException e) {
+            MemoryGovernor.getInstance().release(heldBytes, batch.bytes);
+            throw e;
         }
     }
 
-    private void putTrToQueue(Tr tr) {
+    private void putBatchToQueue(TrBatch batch) {
         try {
-            boolean putSuccess = context.trWaitQueue.offer(tr, 1, TimeUnit.HOURS);
+            boolean putSuccess = trWaitQueue.offer(batch, 1, TimeUnit.HOURS);
             if (!putSuccess) {
+                if (exception) {
+                    throw new IllegalStateException("An exception occurred while processing");
+                }
                 throw new IllegalStateException("Put tr to queue failure,timeout 1 hour.");
             }
         } catch (InterruptedException e) {
-            if (receiveThread != null) {
-                receiveThread.interrupt();
-            }
+            this.cancelReceive();
             throw new ExcelBuildException("Put tr to queue failure", e);
         }
     }
 
     private void storeToTempFile() {
+        this.closeSameValueRuns();
+        this.flushDataValidations();
+        if (nativeXlsx) {
+            this.storeNativeToTempFile();
+            return;
+        }
         String suffix = isHssf ? Constants.XLS : Constants.XLSX;
         Path path = TempFileOperator.createTempFile("s_t_r_p", suffix);
         tempFilePaths.add(path);
@@ -328,7 +597,7 @@ class HtmlToExcelStreamFactory extends AbstractExcelFactory {
                         context.pathConsumer.accept(path);
                     }
                 }, context.executorService);
-                futures.add(future);
+                futures.put(path, future);
             } else {
                 this.setColWidth(colWidthMap, sheet, maxColIndex);
                 this.createEmptySheetIfAbsent(workbook);
@@ -343,6 +612,57 @@ class HtmlToExcelStreamFactory extends AbstractExcelFactory {
         }
     }
 
+    private void storeNativeToTempFile() {
+        this.setNativeColWidth(colWidthMap);
+        try {
+            xlsxStreamWriter.finish();
+        } catch (IOException e) {
+            clear();
+            throw new RuntimeException(e);
+        }
+        if (Objects.nonNull(context.pathConsumer)) {
+            context.pathConsumer.accept(xlsxStreamWriter.getPath());
+        }
+    }
+
+    private void initNativeWriter() {
+        if (WidthStrategy.isAutoWidth(widthStrategy)) {
+            log.warn("The native xlsx workbook does not support auto sizing columns, only the specified width will take effect");
+        }
+        Path path = TempFileOperator.createTempFile("s_t_r_p", Constants.XLSX);
+        tempFilePaths.add(path);
+        try {
+            xlsxStreamWriter = new XlsxStreamWriter(path, compressionProfile.level);
+        } catch (IOException e) {
+            throw new ExcelBuildException("Failed to create native xlsx writer", e);
+        }
+        this.createNativeSheet(sheetName);
+    }
+
+    private void createNativeSheet(String sheetName) {
+        try {
+            xlsxStreamWriter.createSheet(sheetName);
+        } catch (IOException e) {
+            throw new ExcelBuildException("Failed to create sheet", e);
+        }
+        if (context.fixedTitles && titles != null) {
+            xlsxStreamWriter.createFreezePane(0, titles.size());
+        }
+        if (context.freezePane != null) {
+            xlsxStreamWriter.createFreezePane(context.freezePane.colSplit, context.freezePane.rowSplit);
+        }
+    }
+
+    private void setNativeColWidth(Map<Integer, Integer> colMaxWidthMap) {
+        colMaxWidthMap.forEach((key, value) -> {
+            int contentLength = value << 1;
+            if (contentLength > 255) {
+                contentLength = 255;
+            }
+            xlsxStreamWriter.setColumnWidth(key, contentLength << 8);
+        });
+    }
+
     private void createEmptySheetIfAbsent(Workbook tempWorkbook) {
         if (tempWorkbook.getNumberOfSheets() == 0) {
             this.createSheet(sheetName);
@@ -359,6 +679,17 @@ class HtmlToExcelStreamFactory extends AbstractExcelFactory {
     }
 
     private void initNewWorkbook() {
+        if (nativeXlsx) {
+            sheetNum = 0;
+            rowNum = 0;
+            count = 0;
+            colWidthMap = new HashMap<>();
+            this.initNativeWriter();
+            if (titles != null) {
+                this.setTitles();
+            }
+            return;
+        }
         workbook = null;
         workbookType(isHssf ? WorkbookType.XLS : WorkbookType.SXLSX);
         sheetNum = 0;
@@ -388,7 +719,9 @@ class HtmlToExcelStreamFactory extends AbstractExcelFactory {
         PrintSetup ps = sheet.getPrintSetup();
         ps.setFitHeight((short) 1);
         ps.setFitWidth((short) 1);
-        context.startSheetConsumer.accept(sheet);
+        if (context.startSheetConsumer != null) {
+            context.startSheetConsumer.accept(sheet);
+        }
         return sheet;
     }
 
@@ -397,25 +730,41 @@ class HtmlToExcelStreamFactory extends AbstractExcelFactory {
         tr.tdList.forEach(td -> {
             td.row = rowNum;
         });
+        sameValueMerger.merge(tr, this::addSameValueRegion);
         rowNum++;
         count++;
+        if (nativeXlsx) {
+            try {
+                xlsxStreamWriter.writeRow(tr);
+            } catch (IOException e) {
+                throw new ExcelBuildException("Failed to write row", e);
+            }
+            return;
+        }
         this.createRow(tr, sheet);
     }
 
+    private void addSameValueRegion(CellRangeAddress region) {
+        if (nativeXlsx) {
+            xlsxStreamWriter.addMergedRegion(region);
+        } else {
+            this.addMergedRegion(sheet, region);
+        }
+    }
+
+    /**
+     * 结束未完成的相同值合并，需在切换sheet或输出文件前调用
+     */
+    private void closeSameValueRuns() {
+        sameValueMerger.finish(this::addSameValueRegion);
+    }
+
     Path buildAsZip(String fileName) {
         waiting();
         this.storeToTempFile();
-        futures.forEach(CompletableFuture::join);
-        String suffix = isHssf ? Constants.XLS : Constants.XLSX;
         Path zipFile = TempFileOperator.createTempFile(fileName, ".zip");
-        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zipFile))) {
-            for (int i = 1, size = tempFilePaths.size(); i <= size; i++) {
-                Path path = tempFilePaths.get(i - 1);
-                ZipEntry zipEntry = new ZipEntry(fileName + " (" + i + ")" + suffix);
-                out.putNextEntry(zipEntry);
-                out.write(Files.readAllBytes(path));
-                out.closeEntry();
-            }
+        try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(Files.newOutputStream(zipFile))) {
+            this.writeZip(fileName, out);
         } catch (IOException e) {
             throw new RuntimeException(e);
         } finally {
@@ -426,25 +775,159 @@ class HtmlToExcelStreamFactory extends AbstractExcelFactory {
         return zipFile;
     }
 
+    /**
+     * 构建并写入通道，仅有一个文件时直接传输该文件，否则以zip格式写入，临时文件在写入后删除
+     *
+     * @param channel 目标通道
+     */
+    void buildTo(WritableByteChannel channel) {
+        waiting();
+        this.storeToTempFile();
+        try {
+            if (tempFilePaths.size() == 1) {
+                this.awaitTempFile(tempFilePaths.get(0));
+                FileExportUtil.transferTo(tempFilePaths.get(0), channel);
+            } else {
+                // 不关闭调用方的通道
+                ZipArchiveOutputStream out = new ZipArchiveOutputStream(Channels.newOutputStream(channel));
+                this.writeZip(sheetName, out);
+                out.finish();
+                out.flush();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } finally {
+            clear();
+            tempFilePaths.clear();
+        }
+    }
+
+    /**
+     * 写入zip，各文件输出完成后即写入，无需等待后续文件
+     *
+     * @param fileName 文件名称
+     * @param out      压缩包输出流
+     * @throws IOException IOException
+     */
+    private void writeZip(String fileName, ZipArchiveOutputStream out) throws IOException {
+        String suffix = isHssf ? Constants.XLS : Constants.XLSX;
+        List<String> entryNames = new ArrayList<>(tempFilePaths.size());
+        for (int i = 1, size = tempFilePaths.size(); i <= size; i++) {
+            entryNames.add(fileName + " (" + i + ")" + suffix);
+        }
+        out.setLevel(compressionProfile.level);
+        if (compressionProfile.deflateExecutor != null && !compressionProfile.storeZipEntries) {
+            futures.values().forEach(CompletableFuture::join);
+            ParallelZipWriter.write(out, entryNames, tempFilePaths, compressionProfile.level, compressionProfile.deflateExecutor);
+            return;
+        }
+        for (int i = 0, size = tempFilePaths.size(); i < size; i++) {
+            Path path = tempFilePaths.get(i);
+            this.awaitTempFile(path);
+            if (compressionProfile.storeZipEntries) {
+                this.putStoredEntry(out, entryNames.get(i), path);
+                continue;
+            }
+            out.putArchiveEntry(new ZipArchiveEntry(entryNames.get(i)));
+            Files.copy(path, out);
+            out.closeArchiveEntry();
+        }
+    }
+
+    /**
+     * 以不压缩方式写入条目，先计算校验值，再经固定缓冲区原样复制
+     */
+    private void putStoredEntry(ZipArchiveOutputStream out, String entryName, Path path) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = new CheckedInputStream(Files.newInputStream(path), crc)) {
+            while (in.read(buffer) > 0) {
+                // 仅计算校验值
+            }
+        }
+        long size = Files.size(path);
+        ZipArchiveEntry entry = new ZipArchiveEntry(entryName);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(size);
+        entry.setCompressedSize(size);
+        entry.setCrc(crc.getValue());
+        try (InputStream in = Files.newInputStream(path)) {
+            out.addRawArchiveEntry(entry, in);
+        }
+    }
+
+    private void awaitTempFile(Path path) {
+        CompletableFuture<Void> future = futures.get(path);
+        if (future != null) {
+            future.join();
+        }
+    }
+
     public void cancel() {
         waiting();
         clear();
     }
 
     public void clear() {
-        if (receiveThread != null && receiveThread.isAlive()) {
-            receiveThread.interrupt();
-        }
+        this.cancelReceive();
+        MemoryGovernor.getInstance().releaseAll(heldBytes);
         closeWorkbook();
+        if (xlsxStreamWriter != null) {
+            try {
+                xlsxStreamWriter.close();
+            } catch (IOException e) {
+                log.warn("Failed to close native xlsx writer", e);
+            }
+        }
         TempFileOperator.deleteTempFiles(tempFilePaths);
     }
 
+    /**
+     * 构建器未经构建、取消或关闭即被回收时调用，中止写入并由写入线程清理
+     */
+    void abandon() {
+        this.cancelReceive();
+    }
+
+    private void cancelReceive() {
+        Future<?> future = receiveFuture;
+        if (future != null) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * 待写入批次及其估算占用
+     */
+    private static final class TrBatch {
+
+        final List<Tr> trList;
+
+        final long bytes;
+
+        TrBatch(List<Tr> trList, long bytes) {
+            this.trList = trList;
+            this.bytes = bytes;
+        }
+    }
+
     /**
      * 上下文
      */
     static class HtmlToExcelStreamFactoryContext {
 
-        BlockingQueue<Tr> trWaitQueue = new LinkedBlockingQueue<>(Math.max(Runtime.getRuntime().availableProcessors() * 10, 100));
+        /**
+         * 待写入行缓冲区容量，单位为行
+         */
+        int waitQueueSize = Math.max(Runtime.getRuntime().availableProcessors() * 10, 100);
+        /**
+         * 缓冲区等待策略
+         */
+        WaitStrategy waitStrategy = WaitStrategy.PARK;
+        /**
+         * 批量交接大小
+         */
+        int batchSize = 32;
         /**
          * 线程池
          */
@@ -465,9 +948,16 @@ class HtmlToExcelStreamFactory extends AbstractExcelFactory {
         /**
          * sheet前置处理函数
          */
-        Consumer<Sheet> startSheetConsumer = sheet -> {
-        };
+        Consumer<Sheet> startSheetConsumer;
 
         FreezePane freezePane;
+        /**
+         * 输出压缩配置
+         */
+        CompressionProfile compressionProfile = CompressionProfile.DEFAULT;
+        /**
+         * 写入调度器
+         */
+        ExportScheduler exportScheduler = ExportScheduler.getInstance();
     }
 }
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core;
+
+import com.github.liaochong.myexcel.core.parser.Td;
+import com.github.liaochong.myexcel.core.parser.Tr;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 流式导出内存预算，进程内所有流式导出待写入的行共享同一预算。
+ * 占用达到预算时追加数据的调用方阻塞，直至写入线程消费释放
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public final class MemoryGovernor {
+
+    private static final MemoryGovernor INSTANCE = new MemoryGovernor();
+
+    private static final long TR_BYTES = 64;
+
+    private static final long TD_BYTES = 136;
+
+    private static final long STRING_BYTES = 40;
+
+    private static final long VALUE_BYTES = 24;
+
+    private static final long MAP_ENTRY_BYTES = 48;
+    /**
+     * 预算，单位为字节
+     */
+    private long budget = Long.MAX_VALUE;
+
+    private long usedBytes;
+
+    private long peakBytes;
+
+    private int waitingCount;
+
+    private MemoryGovernor() {
+    }
+
+    public static MemoryGovernor getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 设置待写入行的内存预算，默认不限制
+     *
+     * @param budget 预算，单位为字节
+     */
+    public synchronized void setBudget(long budget) {
+        if (budget <= 0) {
+            throw new IllegalArgumentException("Budget must be greater than 0");
+        }
+        this.budget = budget;
+        this.notifyAll();
+    }
+
+    public synchronized long getBudget() {
+        return budget;
+    }
+
+    /**
+     * 当前待写入行的估算占用
+     *
+     * @return 占用字节数
+     */
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * 历史最高占用
+     *
+     * @return 占用字节数
+     */
+    public synchronized long getPeakBytes() {
+        return peakBytes;
+    }
+
+    /**
+     * 因预算不足而阻塞的调用方数量
+     *
+     * @return 调用方数量
+     */
+    public synchronized int getWaitingCount() {
+        return waitingCount;
+    }
+
+    /**
+     * 申请预算，预算不足时等待。导出自身无在途数据时总是允许申请，以保证每个导出都能推进
+     *
+     * @param held    导出已持有的字节数
+     * @param bytes   申请字节数
+     * @param timeout 超时时间
+     * @param unit    时间单位
+     * @return 是否申请成功
+     * @throws InterruptedException 线程被中断
+     */
+    synchronized boolean acquire(AtomicLong held, long bytes, long timeout, TimeUnit unit) throws InterruptedException {
+        if (held.get() > 0 && usedBytes + bytes > budget) {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            waitingCount++;
+            try {
+                while (held.get() > 0 && usedBytes + bytes > budget) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+            } finally {
+                waitingCount--;
+            }
+        }
+        this.allocate(held, bytes);
+        return true;
+    }
+
+    /**
+     * 尝试申请预算，预算不足时立即返回false
+     *
+     * @param held  导出已持有的字节数
+     * @param bytes 申请字节数
+     * @return 是否申请成功
+     */
+    synchronized boolean tryAcquire(AtomicLong held, long bytes) {
+        if (held.get() > 0 && usedBytes + bytes > budget) {
+            return false;
+        }
+        this.allocate(held, bytes);
+        return true;
+    }
+
+    /**
+     * 判断预算是否足够，不申请
+     *
+     * @param held  导出已持有的字节数
+     * @param bytes 字节数
+     * @return 是否足够
+     */
+    synchronized boolean hasRoom(AtomicLong held, long bytes) {
+        return held.get() == 0 || usedBytes + bytes <= budget;
+    }
+
+    private void allocate(AtomicLong held, long bytes) {
+        held.addAndGet(bytes);
+        usedBytes += bytes;
+        if (usedBytes > peakBytes) {
+            peakBytes = usedBytes;
+        }
+    }
+
+    /**
+     * 释放预算，释放量不超过导出持有的字节数
+     *
+     * @param held  导出已持有的字节数
+     * @param bytes 释放字节数
+     */
+    synchronized void release(AtomicLong held, long bytes) {
+        long released = Math.min(held.get(), bytes);
+        if (released <= 0) {
+            return;
+        }
+        held.addAndGet(-released);
+        usedBytes -= released;
+        this.notifyAll();
+    }
+
+    /**
+     * 释放导出持有的全部预算
+     *
+     * @param held 导出已持有的字节数
+     */
+    void releaseAll(AtomicLong held) {
+        this.release(held, Long.MAX_VALUE);
+    }
+
+    /**
+     * 估算一批行的内存占用
+     *
+     * @param trList 行
+     * @return 字节数
+     */
+    static long estimate(List<Tr> trList) {
+        long bytes = 0;
+        // 样式按列及奇偶行共享，同一样式在批次内只计一次
+        Set<Map<String, String>> styles = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Tr tr : trList) {
+            bytes += TR_BYTES + ((long) tr.tdList.size() << 2) + mapBytes(tr.colWidthMap);
+            for (Td td : tr.tdList) {
+                bytes += estimate(td);
+                if (td.style != null && styles.add(td.style)) {
+                    bytes += mapBytes(td.style);
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private static long estimate(Td td) {
+        long bytes = TD_BYTES + stringBytes(td.content) + stringBytes(td.link) + stringBytes(td.format);
+        if (td.number != null || td.date != null || td.localDate != null || td.localDateTime != null) {
+            bytes += VALUE_BYTES;
+        }
+        if (td.imageContent != null) {
+            bytes += td.imageContent.bytes.length;
+        }
+        return bytes;
+    }
+
+    private static long stringBytes(String value) {
+        return value == null ? 0 : STRING_BYTES + ((long) value.length() << 1);
+    }
+
+    private static long mapBytes(Map<?, ?> map) {
+        return map == null ? 0 : (long) map.size() * MAP_ENTRY_BYTES;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core;
+
+import org.apache.poi.ss.util.CellRangeAddress;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 合并区域索引，按列记录已合并的行区间，新增区域时以O(log n)检查重叠，
+ * 校验通过后可跳过POI对全部已有区域的重叠检查
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+final class MergedRegionIndex {
+    /**
+     * 各列已合并的行区间，键为起始行，值为结束行
+     */
+    private final Map<Integer, TreeMap<Integer, Integer>> columnRegions = new HashMap<>();
+
+    /**
+     * 校验并登记合并区域
+     *
+     * @param region 合并区域
+     * @throws IllegalArgumentException 区域不足两个单元格
+     * @throws IllegalStateException    区域与已有区域重叠
+     */
+    void add(CellRangeAddress region) {
+        if (region.getNumberOfCells() < 2) {
+            throw new IllegalArgumentException("Merged region " + region.formatAsString() + " must contain 2 or more cells");
+        }
+        int firstRow = region.getFirstRow();
+        int lastRow = region.getLastRow();
+        for (int col = region.getFirstColumn(); col <= region.getLastColumn(); col++) {
+            TreeMap<Integer, Integer> rowRegions = columnRegions.get(col);
+            if (rowRegions == null) {
+                continue;
+            }
+            Map.Entry<Integer, Integer> entry = rowRegions.floorEntry(lastRow);
+            if (entry != null && entry.getValue() >= firstRow) {
+                throw new IllegalStateException("The range " + region.formatAsString() + " intersects with an existing merged region");
+            }
+        }
+        for (int col = region.getFirstColumn(); col <= region.getLastColumn(); col++) {
+            columnRegions.computeIfAbsent(col, k -> new TreeMap<>()).put(firstRow, lastRow);
+        }
+    }
+}
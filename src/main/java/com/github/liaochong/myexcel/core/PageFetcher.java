@@ -0,0 +1,37 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core;
+
+import java.util.List;
+
+/**
+ * 分页数据获取
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface PageFetcher<T> {
+
+    /**
+     * 获取指定页数据，无数据时返回空集合或null。
+     * 最多由prefetchDepth个线程并发调用，实现需线程安全；
+     * 预先获取时可能请求到最后一页之后最多prefetchDepth页，此时同样返回空集合或null
+     *
+     * @param pageNo 页码，从1开始
+     * @return 该页数据
+     */
+    List<T> fetch(int pageNo);
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core;
+
+import com.github.liaochong.myexcel.exception.ExcelBuildException;
+import com.github.liaochong.myexcel.utils.TempFileOperator;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipEntry;
+
+/**
+ * 并行压缩zip条目，各条目在线程池中分别压缩至临时文件，再按顺序以原始数据写入压缩包
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+final class ParallelZipWriter {
+
+    private ParallelZipWriter() {
+    }
+
+    /**
+     * 写入文件条目
+     *
+     * @param out             压缩包输出流
+     * @param entryNames      条目名称
+     * @param paths           条目对应文件
+     * @param level           压缩级别
+     * @param executorService 线程池
+     * @throws IOException IOException
+     */
+    static void write(ZipArchiveOutputStream out, List<String> entryNames, List<Path> paths, int level,
+                      ExecutorService executorService) throws IOException {
+        List<Future<DeflatedEntry>> futures = new ArrayList<>(paths.size());
+        for (Path path : paths) {
+            futures.add(executorService.submit(() -> deflate(path, level)));
+        }
+        try {
+            for (int i = 0, size = futures.size(); i < size; i++) {
+                DeflatedEntry deflatedEntry = get(futures.get(i));
+                ZipArchiveEntry entry = new ZipArchiveEntry(entryNames.get(i));
+                entry.setMethod(ZipEntry.DEFLATED);
+                entry.setCrc(deflatedEntry.crc);
+                entry.setSize(deflatedEntry.size);
+                entry.setCompressedSize(deflatedEntry.compressedSize);
+                try (InputStream in = Files.newInputStream(deflatedEntry.path)) {
+                    out.addRawArchiveEntry(entry, in);
+                }
+                TempFileOperator.deleteTempFile(deflatedEntry.path);
+            }
+        } finally {
+            // 等待未写入的条目完成后删除其临时文件，已写入的条目临时文件已删除
+            for (Future<DeflatedEntry> future : futures) {
+                try {
+                    TempFileOperator.deleteTempFile(future.get().path);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    // 压缩失败时临时文件已删除
+                }
+            }
+        }
+    }
+
+    private static DeflatedEntry get(Future<DeflatedEntry> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExcelBuildException("Interrupted while compressing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new ExcelBuildException("Failed to compress zip entry", e.getCause());
+        }
+    }
+
+    private static DeflatedEntry deflate(Path path, int level) throws IOException {
+        Path deflatedPath = TempFileOperator.createTempFile("d_f_l", ".tmp");
+        Deflater deflater = new Deflater(level, true);
+        CRC32 crc = new CRC32();
+        long size = 0;
+        try (InputStream in = new CheckedInputStream(Files.newInputStream(path), crc);
+             OutputStream out = new DeflaterOutputStream(Files.newOutputStream(deflatedPath), deflater, 8192)) {
+            byte[] buffer = new byte[8192];
+            int len;
+            while ((len = in.read(buffer)) > 0) {
+                out.write(buffer, 0, len);
+                size += len;
+            }
+        } catch (IOException | RuntimeException e) {
+            TempFileOperator.deleteTempFile(deflatedPath);
+            throw e;
+        } finally {
+            deflater.end();
+        }
+        return new DeflatedEntry(deflatedPath, crc.getValue(), size, Files.size(deflatedPath));
+    }
+
+    private static final class DeflatedEntry {
+
+        final Path path;
+
+        final long crc;
+
+        final long size;
+
+        final long compressedSize;
+
+        DeflatedEntry(Path path, long crc, long size, long compressedSize) {
+            this.path = path;
+            this.crc = crc;
+            this.size = size;
+            this.compressedSize = compressedSize;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core;
+
+import com.github.liaochong.myexcel.core.parser.ImageContent;
+import org.apache.poi.ss.usermodel.Workbook;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 工作簿图片池，按内容摘要去重，相同的图片仅保存一份
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+final class PicturePool {
+
+    private final Workbook workbook;
+    /**
+     * 文件路径对应的图片下标，避免重复读取文件
+     */
+    private final Map<String, Integer> pathIndex = new HashMap<>();
+    /**
+     * 内容摘要对应的图片下标
+     */
+    private final Map<String, Integer> digestIndex = new HashMap<>();
+
+    PicturePool(Workbook workbook) {
+        this.workbook = workbook;
+    }
+
+    Workbook getWorkbook() {
+        return workbook;
+    }
+
+    int addPicture(File file) {
+        Integer pictureIdx = pathIndex.get(file.getAbsolutePath());
+        if (pictureIdx == null) {
+            pictureIdx = this.addPicture(ImageContent.of(file));
+            pathIndex.put(file.getAbsolutePath(), pictureIdx);
+        }
+        return pictureIdx;
+    }
+
+    int addPicture(ImageContent imageContent) {
+        Integer pictureIdx = digestIndex.get(imageContent.digest);
+        if (pictureIdx == null) {
+            pictureIdx = workbook.addPicture(imageContent.bytes, imageContent.format);
+            digestIndex.put(imageContent.digest, pictureIdx);
+        }
+        return pictureIdx;
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * 响应式数据源订阅者，将Publisher的数据按批次写入流式构建器。
+ * 仅在已有批次被写入管道接收后才请求后续数据，请求速度与写入速度一致，内存占用有界
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public final class PublisherSink<T> implements Subscriber<T> {
+    /**
+     * 默认同时处于写入中的批次数量
+     */
+    private static final int DEFAULT_MAX_IN_FLIGHT = 2;
+
+    private static final int CSV_BATCH_SIZE = 1000;
+
+    private final Function<List<T>, CompletionStage<Void>> appender;
+
+    private final int batchSize;
+
+    private final int maxInFlight;
+
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+    private volatile Subscription subscription;
+    /**
+     * 待发出的请求数量，请求与取消由同一循环串行发出
+     */
+    private final AtomicLong pendingRequest = new AtomicLong();
+
+    private final AtomicInteger requestWip = new AtomicInteger();
+
+    private volatile boolean cancelled;
+    /**
+     * 仅在请求循环中访问
+     */
+    private boolean cancelSent;
+
+    private List<T> batch;
+    /**
+     * 最近一个批次的写入，批次按顺序写入，最后一个完成即全部完成
+     */
+    private CompletableFuture<Void> lastAppend = CompletableFuture.completedFuture(null);
+
+    private volatile boolean done;
+
+    private PublisherSink(Function<List<T>, CompletionStage<Void>> appender, int batchSize, int maxInFlight) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be greater than 0");
+        }
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("Max in flight must be greater than 0");
+        }
+        this.appender = appender;
+        this.batchSize = batchSize;
+        this.maxInFlight = maxInFlight;
+    }
+
+    public static <T> PublisherSink<T> of(DefaultStreamExcelBuilder<T> excelBuilder) {
+        return of(excelBuilder, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * 订阅后写入流式构建器，构建器需已启动
+     *
+     * @param excelBuilder 流式构建器
+     * @param maxInFlight  同时处于写入中的批次数量
+     * @param <T>          数据类型
+     * @return 订阅者
+     */
+    public static <T> PublisherSink<T> of(DefaultStreamExcelBuilder<T> excelBuilder, int maxInFlight) {
+        return new PublisherSink<>(excelBuilder::appendAsync, excelBuilder.getBatchSize(), maxInFlight);
+    }
+
+    public static <T> PublisherSink<T> of(CsvBuilder<T> csvBuilder) {
+        return of(csvBuilder, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 订阅后写入csv构建器，写入在执行器中按顺序进行
+     *
+     * @param csvBuilder csv构建器
+     * @param executor   执行器
+     * @param <T>        数据类型
+     * @return 订阅者
+     */
+    public static <T> PublisherSink<T> of(CsvBuilder<T> csvBuilder, Executor executor) {
+        AtomicReference<CompletableFuture<Void>> tail = new AtomicReference<>(CompletableFuture.completedFuture(null));
+        Function<List<T>, CompletionStage<Void>> appender = dataList -> tail.updateAndGet(
+                previous -> previous.thenRunAsync(() -> csvBuilder.append(dataList), executor));
+        return new PublisherSink<>(appender, CSV_BATCH_SIZE, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * 订阅数据源
+     *
+     * @param publisher 数据源
+     * @return 全部数据写入后完成，数据源或写入异常时异常完成
+     */
+    public CompletionStage<Void> subscribeTo(Publisher<? extends T> publisher) {
+        publisher.subscribe(this);
+        return completion;
+    }
+
+    /**
+     * 全部数据写入后完成
+     *
+     * @return 完成信号
+     */
+    public CompletionStage<Void> completion() {
+        return completion;
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+        if (subscription == null) {
+            throw new NullPointerException("Subscription must not be null");
+        }
+        if (this.subscription != null || done) {
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+        this.request((long) batchSize * maxInFlight);
+    }
+
+    @Override
+    public void onNext(T item) {
+        if (item == null) {
+            throw new NullPointerException("Item must not be null");
+        }
+        if (done) {
+            return;
+        }
+        if (batch == null) {
+            batch = new ArrayList<>(batchSize);
+        }
+        batch.add(item);
+        if (batch.size() >= batchSize) {
+            this.flush();
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        if (done) {
+            return;
+        }
+        done = true;
+        batch = null;
+        completion.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        if (done) {
+            return;
+        }
+        this.flush();
+        done = true;
+        lastAppend.whenComplete((v, e) -> {
+            if (e == null) {
+                completion.complete(null);
+            } else {
+                completion.completeExceptionally(e);
+            }
+        });
+    }
+
+    /**
+     * 放入当前批次，批次被管道接收后再请求同样数量的数据
+     */
+    private void flush() {
+        if (batch == null || batch.isEmpty()) {
+            return;
+        }
+        List<T> dataList = batch;
+        batch = null;
+        CompletableFuture<Void> append;
+        try {
+            append = appender.apply(dataList).toCompletableFuture();
+        } catch (Throwable e) {
+            append = new CompletableFuture<>();
+            append.completeExceptionally(e);
+        }
+        lastAppend = append;
+        append.whenComplete((v, e) -> {
+            if (e != null) {
+                this.fail(e);
+            } else if (!done) {
+                this.request(dataList.size());
+            }
+        });
+    }
+
+    private void request(long n) {
+        pendingRequest.addAndGet(n);
+        this.drainRequests();
+    }
+
+    private void fail(Throwable e) {
+        done = true;
+        cancelled = true;
+        this.drainRequests();
+        completion.completeExceptionally(e);
+    }
+
+    private void drainRequests() {
+        if (requestWip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            if (cancelled) {
+                if (!cancelSent) {
+                    cancelSent = true;
+                    subscription.cancel();
+                }
+            } else {
+                long n = pendingRequest.getAndSet(0);
+                if (n > 0 && !done) {
+                    subscription.request(n);
+                }
+            }
+            missed = requestWip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core;
+
+import com.github.liaochong.myexcel.core.constant.Constants;
+import com.github.liaochong.myexcel.core.parser.ContentTypeEnum;
+import com.github.liaochong.myexcel.core.parser.Td;
+import com.github.liaochong.myexcel.core.parser.Tr;
+import com.github.liaochong.myexcel.exception.ExcelBuildException;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 结果集导出，按列类型使用对应的取值方法直接填充单元格，不创建每行的对象或Map，
+ * 行经流式构建器的写入线程写入
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public final class ResultSetExcelBuilder {
+
+    private final DefaultStreamExcelBuilder<Map> excelBuilder;
+    /**
+     * 结果集获取行数提示，0为使用驱动默认值
+     */
+    private int fetchSize;
+
+    private ResultSetExcelBuilder(DefaultStreamExcelBuilder<Map> excelBuilder) {
+        this.excelBuilder = excelBuilder;
+    }
+
+    /**
+     * 基于Map类型的流式构建器创建，构建器未启动时以结果集列名为标题启动
+     *
+     * @param excelBuilder 流式构建器
+     * @return ResultSetExcelBuilder
+     */
+    public static ResultSetExcelBuilder of(DefaultStreamExcelBuilder<Map> excelBuilder) {
+        if (excelBuilder == null) {
+            throw new IllegalArgumentException("Excel builder must not be null");
+        }
+        return new ResultSetExcelBuilder(excelBuilder);
+    }
+
+    public ResultSetExcelBuilder fetchSize(int fetchSize) {
+        if (fetchSize < 0) {
+            throw new IllegalArgumentException("Fetch size must not be less than 0");
+        }
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    /**
+     * 读取结果集剩余的全部行并追加，不关闭结果集
+     *
+     * @param resultSet 结果集
+     */
+    public void append(ResultSet resultSet) {
+        try {
+            this.doAppend(resultSet);
+        } catch (SQLException e) {
+            throw new ExcelBuildException("Read result set failure", e);
+        }
+    }
+
+    private void doAppend(ResultSet resultSet) throws SQLException {
+        if (fetchSize > 0) {
+            resultSet.setFetchSize(fetchSize);
+        }
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        ColumnReader[] readers = new ColumnReader[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            readers[i] = ColumnReader.of(metaData.getColumnType(i + 1));
+        }
+        if (!excelBuilder.isStarted()) {
+            if (excelBuilder.titles == null) {
+                List<String> titles = new ArrayList<>(columnCount);
+                for (int i = 1; i <= columnCount; i++) {
+                    titles.add(metaData.getColumnLabel(i));
+                }
+                excelBuilder.titles(titles);
+            }
+            excelBuilder.start();
+        }
+        int batchSize = excelBuilder.getBatchSize();
+        int rowHeight = excelBuilder.configuration.rowHeight;
+        List<Tr> batch = new ArrayList<>(batchSize);
+        while (resultSet.next()) {
+            Tr tr = new Tr(0, rowHeight);
+            List<Td> tdList = new ArrayList<>(columnCount);
+            for (int i = 0; i < columnCount; i++) {
+                Td td = new Td(0, i);
+                readers[i].read(resultSet, i + 1, td);
+                tdList.add(td);
+            }
+            tr.tdList = tdList;
+            batch.add(tr);
+            if (batch.size() >= batchSize) {
+                excelBuilder.appendTrList(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            excelBuilder.appendTrList(batch);
+        }
+    }
+
+    /**
+     * 按列类型读取单元格内容
+     */
+    private enum ColumnReader {
+
+        LONG {
+            @Override
+            void read(ResultSet resultSet, int column, Td td) throws SQLException {
+                long value = resultSet.getLong(column);
+                if (!resultSet.wasNull()) {
+                    td.number = value;
+                    td.tdContentType = ContentTypeEnum.DOUBLE;
+                }
+            }
+        },
+        DOUBLE {
+            @Override
+            void read(ResultSet resultSet, int column, Td td) throws SQLException {
+                double value = resultSet.getDouble(column);
+                if (!resultSet.wasNull()) {
+                    td.number = value;
+                    td.tdContentType = ContentTypeEnum.DOUBLE;
+                }
+            }
+        },
+        DECIMAL {
+            @Override
+            void read(ResultSet resultSet, int column, Td td) throws SQLException {
+                BigDecimal value = resultSet.getBigDecimal(column);
+                if (value != null) {
+                    td.number = value;
+                    td.tdContentType = ContentTypeEnum.DOUBLE;
+                }
+            }
+        },
+        BOOLEAN {
+            @Override
+            void read(ResultSet resultSet, int column, Td td) throws SQLException {
+                boolean value = resultSet.getBoolean(column);
+                if (!resultSet.wasNull()) {
+                    td.bool = value;
+                    td.tdContentType = ContentTypeEnum.BOOLEAN;
+                }
+            }
+        },
+        DATE {
+            @Override
+            void read(ResultSet resultSet, int column, Td td) throws SQLException {
+                Date value = resultSet.getDate(column);
+                if (value != null) {
+                    td.date = value;
+                    td.format = Constants.DEFAULT_DATE_FORMAT;
+                    td.tdContentType = ContentTypeEnum.DATE;
+                }
+            }
+        },
+        TIMESTAMP {
+            @Override
+            void read(ResultSet resultSet, int column, Td td) throws SQLException {
+                Timestamp value = resultSet.getTimestamp(column);
+                if (value != null) {
+                    td.date = value;
+                    td.format = Constants.DEFAULT_DATE_TIME_FORMAT;
+                    td.tdContentType = ContentTypeEnum.DATE;
+                }
+            }
+        },
+        STRING {
+            @Override
+            void read(ResultSet resultSet, int column, Td td) throws SQLException {
+                td.content = resultSet.getString(column);
+            }
+        };
+
+        abstract void read(ResultSet resultSet, int column, Td td) throws SQLException;
+
+        static ColumnReader of(int sqlType) {
+            switch (sqlType) {
+                case Types.TINYINT:
+                case Types.SMALLINT:
+                case Types.INTEGER:
+                case Types.BIGINT:
+                    return LONG;
+                case Types.REAL:
+                case Types.FLOAT:
+                case Types.DOUBLE:
+                    return DOUBLE;
+                case Types.DECIMAL:
+                case Types.NUMERIC:
+                    return DECIMAL;
+                case Types.BIT:
+                case Types.BOOLEAN:
+                    return BOOLEAN;
+                case Types.DATE:
+                    return DATE;
+                case Types.TIMESTAMP:
+                case Types.TIMESTAMP_WITH_TIMEZONE:
+                    return TIMESTAMP;
+                default:
+                    return STRING;
+            }
+        }
+    }
+}
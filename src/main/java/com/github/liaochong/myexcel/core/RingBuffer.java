@@ -0,0 +1,240 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core;
+
+import com.github.liaochong.myexcel.core.strategy.WaitStrategy;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 有界无锁环形缓冲区，槽位预先分配，仅允许单个消费者。
+ * 生产者通过CAS竞争写入位置，因此异步追加时的多个生产者同样安全。
+ * 槽位数量向上取整为2的幂，可放入的元素数量仍以指定容量为准
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+final class RingBuffer<E> {
+
+    private static final int SPIN_TRIES = 100;
+
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Object[] buffer;
+
+    private final AtomicLongArray sequences;
+
+    private final int mask;
+    /**
+     * 最多可放入的元素数量
+     */
+    private final int capacity;
+
+    private final AtomicLong tail = new AtomicLong();
+    /**
+     * 仅由消费者线程修改
+     */
+    private volatile long head;
+
+    private final WaitStrategy waitStrategy;
+    /**
+     * 挂起等待数据的消费者线程
+     */
+    private volatile Thread parkedConsumer;
+
+    private volatile boolean closed;
+
+    RingBuffer(int capacity, WaitStrategy waitStrategy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be greater than 0");
+        }
+        // 容量为1时已写入与可写入的序号相同，至少需要两个槽位
+        int size = 2;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.buffer = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+        this.capacity = capacity;
+        this.waitStrategy = waitStrategy == null ? WaitStrategy.PARK : waitStrategy;
+    }
+
+    /**
+     * 尝试放入元素，缓冲区已满时立即返回false
+     *
+     * @param e 元素
+     * @return 是否放入成功
+     */
+    boolean offer(E e) {
+        long pos = tail.get();
+        for (; ; ) {
+            int index = (int) pos & mask;
+            long dif = sequences.get(index) - pos;
+            if (dif == 0) {
+                if (pos - head >= capacity) {
+                    return false;
+                }
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    break;
+                }
+                pos = tail.get();
+            } else if (dif < 0) {
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+        int index = (int) pos & mask;
+        buffer[index] = e;
+        sequences.set(index, pos + 1);
+        Thread consumer = parkedConsumer;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+        return true;
+    }
+
+    /**
+     * 放入元素，缓冲区已满时按等待策略等待
+     *
+     * @param e       元素
+     * @param timeout 超时时间
+     * @param unit    时间单位
+     * @return 是否放入成功，超时或缓冲区已关闭时返回false
+     * @throws InterruptedException 线程被中断
+     */
+    boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (int tries = 0; ; tries++) {
+            if (closed) {
+                return false;
+            }
+            if (this.offer(e)) {
+                return true;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            this.idle(tries, remaining);
+        }
+    }
+
+    /**
+     * 取出元素，仅允许消费者线程调用
+     *
+     * @return 元素，无数据时返回null
+     */
+    @SuppressWarnings("unchecked")
+    E poll() {
+        long pos = head;
+        int index = (int) pos & mask;
+        if (sequences.get(index) != pos + 1) {
+            return null;
+        }
+        E e = (E) buffer[index];
+        buffer[index] = null;
+        sequences.set(index, pos + buffer.length);
+        head = pos + 1;
+        return e;
+    }
+
+    /**
+     * 取出元素，无数据时按等待策略等待，仅允许消费者线程调用
+     *
+     * @param timeout 超时时间
+     * @param unit    时间单位
+     * @return 元素，超时或缓冲区已关闭且无数据时返回null
+     * @throws InterruptedException 线程被中断
+     */
+    E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (int tries = 0; ; tries++) {
+            E e = this.poll();
+            if (e != null) {
+                return e;
+            }
+            if (closed) {
+                return null;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return null;
+            }
+            if (WaitStrategy.isPark(waitStrategy) && tries >= SPIN_TRIES) {
+                parkedConsumer = Thread.currentThread();
+                // 再次检查，避免错过生产者的唤醒
+                if (this.isEmpty()) {
+                    LockSupport.parkNanos(this, Math.min(remaining, MAX_PARK_NANOS));
+                }
+                parkedConsumer = null;
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            } else {
+                this.idle(tries, remaining);
+            }
+        }
+    }
+
+    private void idle(int tries, long remaining) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (WaitStrategy.isSpin(waitStrategy) || tries < SPIN_TRIES) {
+            return;
+        }
+        if (WaitStrategy.isYield(waitStrategy)) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(this, Math.min(remaining, MAX_PARK_NANOS));
+        }
+    }
+
+    boolean isEmpty() {
+        return tail.get() == head;
+    }
+
+    int size() {
+        return (int) Math.max(tail.get() - head, 0);
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * 清空缓冲区，仅允许消费者线程调用
+     */
+    void clear() {
+        while (this.poll() != null) {
+            // drain
+        }
+    }
+
+    /**
+     * 关闭缓冲区，阻塞中的生产者及消费者将立即返回
+     */
+    void close() {
+        closed = true;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core;
+
+import com.github.liaochong.myexcel.core.parser.Td;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 合并单元格占位暂存环，按行号取模存放各行的占位单元格，由后续行认领。
+ * 不同行落在同一槽位时扩容，容量随最大跨行数增长，认领及放入均为O(1)
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+final class RowStaging {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] rows;
+
+    private List<Td>[] buckets;
+
+    private int mask;
+
+    RowStaging() {
+        this.init(INITIAL_CAPACITY);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void init(int capacity) {
+        rows = new int[capacity];
+        buckets = new List[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * 认领指定行的占位单元格
+     *
+     * @param row 行号
+     * @return 占位单元格，无时返回null
+     */
+    List<Td> remove(int row) {
+        int index = row & mask;
+        List<Td> bucket = buckets[index];
+        if (bucket == null || rows[index] != row) {
+            return null;
+        }
+        buckets[index] = null;
+        return bucket;
+    }
+
+    /**
+     * 获取指定行的占位单元格集合，不存在时创建
+     *
+     * @param row 行号
+     * @return 占位单元格集合
+     */
+    List<Td> bucket(int row) {
+        int index = row & mask;
+        while (buckets[index] != null && rows[index] != row) {
+            this.grow();
+            index = row & mask;
+        }
+        List<Td> bucket = buckets[index];
+        if (bucket == null) {
+            bucket = new ArrayList<>();
+            buckets[index] = bucket;
+            rows[index] = row;
+        }
+        return bucket;
+    }
+
+    void add(int row, Td td) {
+        this.bucket(row).add(td);
+    }
+
+    private void grow() {
+        int[] oldRows = rows;
+        List<Td>[] oldBuckets = buckets;
+        int capacity = oldRows.length << 1;
+        while (true) {
+            this.init(capacity);
+            if (this.rehash(oldRows, oldBuckets)) {
+                return;
+            }
+            capacity <<= 1;
+        }
+    }
+
+    private boolean rehash(int[] oldRows, List<Td>[] oldBuckets) {
+        for (int i = 0; i < oldBuckets.length; i++) {
+            if (oldBuckets[i] == null) {
+                continue;
+            }
+            int index = oldRows[i] & mask;
+            if (buckets[index] != null) {
+                return false;
+            }
+            buckets[index] = oldBuckets[i];
+            rows[index] = oldRows[i];
+        }
+        return true;
+    }
+
+    void clear() {
+        Arrays.fill(buckets, null);
+    }
+}
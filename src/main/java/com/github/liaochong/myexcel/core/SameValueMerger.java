@@ -0,0 +1,145 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core;
+
+import com.github.liaochong.myexcel.core.parser.Td;
+import com.github.liaochong.myexcel.core.parser.Tr;
+import org.apache.poi.ss.util.CellRangeAddress;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * 相邻相同值合并，每列仅保留当前未结束的区间，行写入前将与上一行相同的值置空，区间结束时输出合并区域
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+final class SameValueMerger {
+    /**
+     * 各列未结束的区间，键为列
+     */
+    private final Map<Integer, Run> openRuns = new HashMap<>();
+
+    /**
+     * 处理即将写入的行
+     *
+     * @param tr             行
+     * @param regionConsumer 合并区域消费者
+     */
+    void merge(Tr tr, Consumer<CellRangeAddress> regionConsumer) {
+        for (Td td : tr.tdList) {
+            if (!td.mergeSame) {
+                continue;
+            }
+            Run run = openRuns.get(td.col);
+            if (td.rowSpan > 0 || td.colSpan > 0 || td.formula || !hasValue(td)) {
+                if (run != null) {
+                    openRuns.remove(td.col);
+                    run.close(regionConsumer);
+                }
+                continue;
+            }
+            if (run != null && run.lastRow == td.row - 1 && isSameValue(run.first, td)) {
+                run.lastRow = td.row;
+                clearValue(td);
+                continue;
+            }
+            if (run != null) {
+                run.close(regionConsumer);
+            }
+            openRuns.put(td.col, new Run(td));
+        }
+        if (openRuns.isEmpty()) {
+            return;
+        }
+        // 本行未延续的区间结束
+        Iterator<Run> iterator = openRuns.values().iterator();
+        while (iterator.hasNext()) {
+            Run run = iterator.next();
+            if (run.lastRow < tr.index) {
+                iterator.remove();
+                run.close(regionConsumer);
+            }
+        }
+    }
+
+    /**
+     * 结束所有区间，切换sheet或输出文件前调用
+     *
+     * @param regionConsumer 合并区域消费者
+     */
+    void finish(Consumer<CellRangeAddress> regionConsumer) {
+        for (Run run : openRuns.values()) {
+            run.close(regionConsumer);
+        }
+        openRuns.clear();
+    }
+
+    private static boolean hasValue(Td td) {
+        return td.content != null || td.number != null || td.bool != null
+                || td.date != null || td.localDate != null || td.localDateTime != null;
+    }
+
+    private static boolean isSameValue(Td td, Td other) {
+        if (td.tdContentType != other.tdContentType) {
+            return false;
+        }
+        if (td.number instanceof BigDecimal && other.number instanceof BigDecimal) {
+            if (((BigDecimal) td.number).compareTo((BigDecimal) other.number) != 0) {
+                return false;
+            }
+        } else if (!Objects.equals(td.number, other.number)) {
+            return false;
+        }
+        return Objects.equals(td.content, other.content)
+                && Objects.equals(td.bool, other.bool)
+                && Objects.equals(td.date, other.date)
+                && Objects.equals(td.localDate, other.localDate)
+                && Objects.equals(td.localDateTime, other.localDateTime);
+    }
+
+    private static void clearValue(Td td) {
+        td.content = null;
+        td.number = null;
+        td.bool = null;
+        td.date = null;
+        td.localDate = null;
+        td.localDateTime = null;
+        td.link = null;
+    }
+
+    private static final class Run {
+
+        final Td first;
+
+        int lastRow;
+
+        Run(Td first) {
+            this.first = first;
+            this.lastRow = first.row;
+        }
+
+        void close(Consumer<CellRangeAddress> regionConsumer) {
+            if (lastRow > first.row) {
+                regionConsumer.accept(new CellRangeAddress(first.row, lastRow, first.col, first.col));
+            }
+        }
+    }
+}
@@ -35,7 +35,11 @@ public enum WorkbookType {
     /**
      * .xlsx
      */
-    SXLSX;
+    SXLSX,
+    /**
+     * .xlsx，直接输出SpreadsheetML，不经过POI对象模型，仅支持流式导出
+     */
+    NATIVE_XLSX;
 
     public static boolean isXls(WorkbookType workbookType) {
         return XLS.equals(workbookType);
@@ -45,6 +49,10 @@ public enum WorkbookType {
         return SXLSX.equals(workbookType);
     }
 
+    public static boolean isNativeXlsx(WorkbookType workbookType) {
+        return NATIVE_XLSX.equals(workbookType);
+    }
+
     public static boolean isNone(WorkbookType workbookType) {
         return NONE.equals(workbookType);
     }
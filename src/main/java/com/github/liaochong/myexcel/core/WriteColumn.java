@@ -0,0 +1,89 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core;
+
+import com.github.liaochong.myexcel.core.constant.Constants;
+import com.github.liaochong.myexcel.core.container.Pair;
+import com.github.liaochong.myexcel.core.converter.ConvertContext;
+import com.github.liaochong.myexcel.core.converter.WriteConverter;
+import com.github.liaochong.myexcel.core.converter.WriteConverterContext;
+import com.github.liaochong.myexcel.core.parser.DropdownList;
+import com.github.liaochong.myexcel.core.parser.Image;
+import com.github.liaochong.myexcel.utils.FieldDefinition;
+
+import java.lang.reflect.Field;
+
+/**
+ * 导出列写入计划，构建开始时一次性解析列的格式化、映射、提示等信息
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+final class WriteColumn {
+
+    final FieldDefinition fieldDefinition;
+
+    final Field field;
+
+    final Class<?> fieldType;
+    /**
+     * 为null时默认值
+     */
+    final String defaultValue;
+    /**
+     * 格式化
+     */
+    final String format;
+
+    final boolean formula;
+
+    final PromptContainer promptContainer;
+
+    final Image image;
+
+    final DropdownList dropdownList;
+
+    final boolean mergeSame;
+    /**
+     * 转换器，首次遇到非空值时确定，此后不再查找
+     */
+    private volatile WriteConverter writeConverter;
+
+    WriteColumn(FieldDefinition fieldDefinition, String defaultValue, String format, ExcelColumnMapping mapping) {
+        this.fieldDefinition = fieldDefinition;
+        this.field = fieldDefinition.getField();
+        this.fieldType = field.getType();
+        this.defaultValue = defaultValue;
+        this.format = format;
+        this.formula = mapping != null && mapping.formula;
+        this.promptContainer = mapping == null ? null : mapping.promptContainer;
+        this.image = mapping == null ? null : mapping.image;
+        this.dropdownList = mapping == null ? null : mapping.dropdownList;
+        this.mergeSame = mapping != null && mapping.mergeSame;
+    }
+
+    Pair<? extends Class, Object> convert(Object data, ConvertContext convertContext) {
+        Object fieldVal = WriteConverterContext.getFieldValue(fieldDefinition, data);
+        if (fieldVal == null) {
+            return Constants.NULL_PAIR;
+        }
+        WriteConverter converter = writeConverter;
+        if (converter == null) {
+            converter = WriteConverterContext.getWriteConverter(field, fieldType, fieldVal, convertContext);
+            writeConverter = converter;
+        }
+        return converter.convert(field, fieldType, fieldVal, convertContext);
+    }
+}
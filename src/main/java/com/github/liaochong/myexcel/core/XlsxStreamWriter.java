@@ -0,0 +1,669 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core;
+
+import com.github.liaochong.myexcel.core.parser.ContentTypeEnum;
+import com.github.liaochong.myexcel.core.parser.Td;
+import com.github.liaochong.myexcel.core.parser.Tr;
+import com.github.liaochong.myexcel.core.style.BackgroundStyle;
+import com.github.liaochong.myexcel.core.style.BorderStyle;
+import com.github.liaochong.myexcel.core.style.CustomColor;
+import com.github.liaochong.myexcel.core.style.FontStyle;
+import com.github.liaochong.myexcel.core.style.TextAlignStyle;
+import com.github.liaochong.myexcel.core.style.WordBreakStyle;
+import com.github.liaochong.myexcel.utils.TempFileOperator;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFFont;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 原生xlsx流式写入器，不经过POI单元格对象模型，直接将sheet、styles等部件写入zip
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+final class XlsxStreamWriter implements Closeable {
+
+    private static final String XML_HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+
+    private static final String NS_MAIN = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+
+    private static final String NS_RELATIONSHIPS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+    private static final String NS_PACKAGE_RELATIONSHIPS = "http://schemas.openxmlformats.org/package/2006/relationships";
+
+    private final Path path;
+
+    private final ZipOutputStream out;
+
+    private final Writer zipWriter;
+    /**
+     * sheet行数据暂存文件，sheet完成时在列宽之后写入zip
+     */
+    private final Path sheetDataPath;
+
+    private Writer sheetDataWriter;
+    /**
+     * 当前输出，写入行时为暂存文件，其余为zip
+     */
+    private Writer writer;
+    /**
+     * 样式表，仅包含样式对象，不包含任何单元格
+     */
+    private final StylesTable stylesTable = new StylesTable();
+
+    private final CustomColor customColor = new CustomColor();
+
+    private final Map<Map<String, String>, Integer> cellStyleMap = new HashMap<>();
+    /**
+     * 样式ID对应的样式下标，下标为样式ID，0表示尚未创建
+     */
+    private int[] styleIndexes = new int[16];
+
+    private final Map<String, Font> fontMap = new HashMap<>();
+    /**
+     * 当前sheet列宽，sheet完成时输出
+     */
+    private final Map<Integer, Integer> columnWidths = new LinkedHashMap<>();
+    /**
+     * 已写入sheet名称
+     */
+    private final List<String> sheetNames = new ArrayList<>();
+    /**
+     * 暂存单元格，由后续行认领
+     */
+    private final RowStaging stagingTds = new RowStaging();
+
+    private final List<String> mergeCells = new LinkedList<>();
+
+    private MergedRegionIndex mergedRegionIndex = new MergedRegionIndex();
+
+    private final List<String[]> hyperlinks = new LinkedList<>();
+
+    private final List<DataValidationMerger.Range> dataValidations = new LinkedList<>();
+    /**
+     * 与POI写入共用合并规则，两种写入输出相同的数据验证
+     */
+    private final DataValidationMerger dataValidationMerger = new DataValidationMerger(dataValidations::add);
+
+    private String[] columnNames = new String[0];
+
+    private FreezePane freezePane;
+
+    private boolean sheetOpened;
+
+    private boolean sheetDataStarted;
+
+    private boolean finished;
+
+    XlsxStreamWriter(Path path, int level) throws IOException {
+        this.path = path;
+        this.out = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(path)));
+        this.out.setLevel(level);
+        this.zipWriter = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        this.writer = zipWriter;
+        this.sheetDataPath = TempFileOperator.createTempFile("s_d", ".xml");
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    int getNumberOfSheets() {
+        return sheetNames.size();
+    }
+
+    /**
+     * 创建新sheet，若已存在打开的sheet，则先完结该sheet
+     *
+     * @param sheetName sheet名称
+     * @throws IOException IOException
+     */
+    void createSheet(String sheetName) throws IOException {
+        this.closeSheet();
+        sheetNames.add(sheetName);
+        sheetOpened = true;
+        sheetDataStarted = false;
+        freezePane = null;
+    }
+
+    /**
+     * 设置列宽，宽度单位与POI保持一致，即1/256个字符宽度
+     *
+     * @param columnIndex 列索引
+     * @param width       宽度
+     */
+    void setColumnWidth(int columnIndex, int width) {
+        columnWidths.put(columnIndex, width);
+    }
+
+    void createFreezePane(int colSplit, int rowSplit) {
+        this.freezePane = new FreezePane(rowSplit, colSplit);
+    }
+
+    void writeRow(Tr tr) throws IOException {
+        this.startSheetData();
+        int rowNum = tr.index + 1;
+        writer.write("<row r=\"");
+        writer.write(Integer.toString(rowNum));
+        writer.write('"');
+        if (!tr.visibility) {
+            writer.write(" hidden=\"1\"");
+        }
+        if (tr.height > 0) {
+            writer.write(" ht=\"");
+            writer.write(Integer.toString(tr.height));
+            writer.write("\" customHeight=\"1\"");
+        }
+        writer.write('>');
+        List<Td> tds = tr.tdList;
+        List<Td> staged = stagingTds.remove(tr.index);
+        if (staged != null) {
+            tds = new ArrayList<>(tds);
+            tds.addAll(staged);
+            tds.sort((td1, td2) -> Integer.compare(td1.col, td2.col));
+        }
+        for (Td td : tds) {
+            this.writeCell(td, rowNum);
+            if (td.rowSpan == 0 && td.colSpan == 0) {
+                continue;
+            }
+            if (td.colSpan > 0) {
+                int styleIndex = this.getStyleIndex(td);
+                for (int j = td.col + 1, colBound = td.getColBound(); j <= colBound; j++) {
+                    this.writeBlankCell(j, rowNum, styleIndex);
+                }
+            }
+            for (int i = td.row + 1, rowBound = td.getRowBound(); i <= rowBound; i++) {
+                List<Td> rowStagingTds = stagingTds.bucket(i);
+                for (int j = td.col, colBound = td.getColBound(); j <= colBound; j++) {
+                    Td blankTd = new Td(i, j);
+                    blankTd.th = td.th;
+                    blankTd.style = td.style;
+                    blankTd.styleId = td.styleId;
+                    rowStagingTds.add(blankTd);
+                }
+            }
+            this.addMergedRegion(new CellRangeAddress(td.row, td.getRowBound(), td.col, td.getColBound()));
+        }
+        writer.write("</row>");
+    }
+
+    /**
+     * 添加当前sheet的合并区域
+     *
+     * @param region 合并区域
+     */
+    void addMergedRegion(CellRangeAddress region) {
+        mergedRegionIndex.add(region);
+        mergeCells.add(region.formatAsString());
+    }
+
+    private void writeCell(Td td, int rowNum) throws IOException {
+        int styleIndex = this.getStyleIndex(td);
+        String ref = this.getColumnName(td.col) + rowNum;
+        writer.write("<c r=\"");
+        writer.write(ref);
+        writer.write('"');
+        if (styleIndex > 0) {
+            writer.write(" s=\"");
+            writer.write(Integer.toString(styleIndex));
+            writer.write('"');
+        }
+        if (td.formula) {
+            writer.write("><f>");
+            this.writeEscaped(td.content);
+            writer.write("</f></c>");
+            return;
+        }
+        this.setPrompt(td);
+        String content = td.content;
+        switch (td.tdContentType) {
+            case DOUBLE:
+                if (td.number != null) {
+                    this.writeNumber(td.number);
+                    return;
+                }
+                if (content == null) {
+                    writer.write("/>");
+                    return;
+                }
+                this.writeNumber(Double.parseDouble(content));
+                return;
+            case DATE:
+                double date;
+                if (td.date != null) {
+                    date = DateUtil.getExcelDate(td.date);
+                } else if (td.localDateTime != null) {
+                    date = DateUtil.getExcelDate(td.localDateTime);
+                } else if (td.localDate != null) {
+                    date = DateUtil.getExcelDate(td.localDate);
+                } else {
+                    writer.write("/>");
+                    return;
+                }
+                this.writeNumber(date);
+                return;
+            case BOOLEAN:
+                if (td.bool == null && content == null) {
+                    writer.write("/>");
+                    return;
+                }
+                writer.write(" t=\"b\"><v>");
+                writer.write((td.bool != null ? td.bool : Boolean.parseBoolean(content)) ? '1' : '0');
+                writer.write("</v></c>");
+                return;
+            case LINK_URL:
+            case LINK_EMAIL:
+                if (content != null && !content.trim().isEmpty()) {
+                    hyperlinks.add(new String[]{ref, td.link});
+                }
+                this.writeInlineString(content);
+                return;
+            default:
+                this.writeInlineString(content);
+        }
+    }
+
+    private void writeNumber(Number value) throws IOException {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            // 整数直接输出，不经double转换
+            writer.write("><v>");
+            writer.write(Long.toString(value.longValue()));
+            writer.write("</v></c>");
+            return;
+        }
+        this.writeNumber(value.doubleValue());
+    }
+
+    private void writeNumber(double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            // 与SXSSF保持一致，写为错误单元格，否则Excel认为文件已损坏
+            writer.write(" t=\"e\"><v>#NUM!</v></c>");
+            return;
+        }
+        writer.write("><v>");
+        writer.write(Double.toString(value));
+        writer.write("</v></c>");
+    }
+
+    private void writeInlineString(String content) throws IOException {
+        if (content == null) {
+            writer.write("/>");
+            return;
+        }
+        writer.write(" t=\"inlineStr\"><is><t");
+        if (!content.isEmpty() && (Character.isWhitespace(content.charAt(0)) || Character.isWhitespace(content.charAt(content.length() - 1)))) {
+            writer.write(" xml:space=\"preserve\"");
+        }
+        writer.write('>');
+        this.writeEscaped(content);
+        writer.write("</t></is></c>");
+    }
+
+    private void writeBlankCell(int col, int rowNum, int styleIndex) throws IOException {
+        writer.write("<c r=\"");
+        writer.write(this.getColumnName(col));
+        writer.write(Integer.toString(rowNum));
+        writer.write('"');
+        if (styleIndex > 0) {
+            writer.write(" s=\"");
+            writer.write(Integer.toString(styleIndex));
+            writer.write('"');
+        }
+        writer.write("/>");
+    }
+
+    /**
+     * 校验行内容能否原生写入，图片、下拉列表、批注及斜线需POI绘图部件，暂不支持
+     *
+     * @param trList 行
+     */
+    static void checkSupported(List<Tr> trList) {
+        for (Tr tr : trList) {
+            for (Td td : tr.tdList) {
+                if (td.tdContentType == ContentTypeEnum.IMAGE) {
+                    throw new IllegalArgumentException("The native xlsx workbook does not support images.");
+                }
+                if (ContentTypeEnum.isDropdownList(td.tdContentType)) {
+                    throw new IllegalArgumentException("The native xlsx workbook does not support dropdown lists.");
+                }
+                if (td.comment != null) {
+                    throw new IllegalArgumentException("The native xlsx workbook does not support comments.");
+                }
+                if (td.slant != null) {
+                    throw new IllegalArgumentException("The native xlsx workbook does not support setting slashes.");
+                }
+            }
+        }
+    }
+
+    private void setPrompt(Td td) {
+        if (td.promptContainer == null) {
+            return;
+        }
+        dataValidationMerger.add(null, DataValidationMerger.Rule.prompt(td.promptContainer),
+                td.row, td.getRowBound(), td.col, td.getColBound());
+    }
+
+    private int getStyleIndex(Td td) {
+        if (td.styleId > 0 && td.styleId < styleIndexes.length && styleIndexes[td.styleId] > 0) {
+            return styleIndexes[td.styleId];
+        }
+        int styleIndex = this.getStyleIndex(td.style);
+        if (td.styleId > 0) {
+            if (td.styleId >= styleIndexes.length) {
+                styleIndexes = Arrays.copyOf(styleIndexes, Math.max(styleIndexes.length << 1, td.styleId + 1));
+            }
+            styleIndexes[td.styleId] = styleIndex;
+        }
+        return styleIndex;
+    }
+
+    private int getStyleIndex(Map<String, String> style) {
+        if (style.isEmpty()) {
+            return 0;
+        }
+        Integer styleIndex = cellStyleMap.get(style);
+        if (styleIndex != null) {
+            return styleIndex;
+        }
+        XSSFCellStyle cellStyle = stylesTable.createCellStyle();
+        // background-color
+        BackgroundStyle.setBackgroundColor(cellStyle, style, customColor);
+        // text-align
+        TextAlignStyle.setTextAlign(cellStyle, style);
+        // border
+        BorderStyle.setBorder(cellStyle, style);
+        // word-break
+        WordBreakStyle.setWordBreak(cellStyle, style);
+        // 内容格式
+        String formatStr = style.get("format");
+        if (formatStr != null) {
+            cellStyle.setDataFormat(stylesTable.putNumberFormat(formatStr));
+        }
+        // font
+        FontStyle.setFont(this::createFont, cellStyle, style, fontMap, customColor);
+        styleIndex = (int) cellStyle.getIndex();
+        cellStyleMap.put(style, styleIndex);
+        return styleIndex;
+    }
+
+    private Font createFont() {
+        XSSFFont font = new XSSFFont();
+        font.registerTo(stylesTable);
+        return font;
+    }
+
+    private String getColumnName(int col) {
+        if (col >= columnNames.length) {
+            String[] newColumnNames = new String[Math.max(col + 1, columnNames.length << 1)];
+            System.arraycopy(columnNames, 0, newColumnNames, 0, columnNames.length);
+            columnNames = newColumnNames;
+        }
+        String columnName = columnNames[col];
+        if (columnName == null) {
+            columnName = CellReference.convertNumToColString(col);
+            columnNames[col] = columnName;
+        }
+        return columnName;
+    }
+
+    private void startSheetData() throws IOException {
+        if (!sheetOpened) {
+            throw new IllegalStateException("No sheet has been created");
+        }
+        if (sheetDataStarted) {
+            return;
+        }
+        sheetDataStarted = true;
+        sheetDataWriter = Files.newBufferedWriter(sheetDataPath, StandardCharsets.UTF_8);
+        writer = sheetDataWriter;
+    }
+
+    private void closeSheet() throws IOException {
+        if (!sheetOpened) {
+            return;
+        }
+        this.startSheetData();
+        sheetDataWriter.close();
+        sheetDataWriter = null;
+        writer = zipWriter;
+        out.putNextEntry(new ZipEntry("xl/worksheets/sheet" + sheetNames.size() + ".xml"));
+        writer.write(XML_HEADER);
+        writer.write("<worksheet xmlns=\"" + NS_MAIN + "\" xmlns:r=\"" + NS_RELATIONSHIPS + "\">");
+        if (freezePane != null && (freezePane.colSplit > 0 || freezePane.rowSplit > 0)) {
+            writer.write("<sheetViews><sheetView workbookViewId=\"0\"><pane");
+            if (freezePane.colSplit > 0) {
+                writer.write(" xSplit=\"" + freezePane.colSplit + "\"");
+            }
+            if (freezePane.rowSplit > 0) {
+                writer.write(" ySplit=\"" + freezePane.rowSplit + "\"");
+            }
+            String activePane = freezePane.colSplit > 0 ? (freezePane.rowSplit > 0 ? "bottomRight" : "topRight") : "bottomLeft";
+            writer.write(" topLeftCell=\"" + this.getColumnName(freezePane.colSplit) + (freezePane.rowSplit + 1)
+                    + "\" activePane=\"" + activePane + "\" state=\"frozen\"/></sheetView></sheetViews>");
+        }
+        if (!columnWidths.isEmpty()) {
+            writer.write("<cols>");
+            List<Integer> columnIndexes = new ArrayList<>(columnWidths.keySet());
+            Collections.sort(columnIndexes);
+            for (Integer columnIndex : columnIndexes) {
+                int width = columnWidths.get(columnIndex);
+                String colNum = Integer.toString(columnIndex + 1);
+                writer.write("<col min=\"" + colNum + "\" max=\"" + colNum + "\" width=\"" + (width / 256d) + "\" customWidth=\"1\"");
+                if (width == 0) {
+                    writer.write(" hidden=\"1\"");
+                }
+                writer.write("/>");
+            }
+            writer.write("</cols>");
+        }
+        writer.write("<sheetData>");
+        writer.flush();
+        Files.copy(sheetDataPath, out);
+        writer.write("</sheetData>");
+        if (!mergeCells.isEmpty()) {
+            writer.write("<mergeCells count=\"" + mergeCells.size() + "\">");
+            for (String mergeCell : mergeCells) {
+                writer.write("<mergeCell ref=\"" + mergeCell + "\"/>");
+            }
+            writer.write("</mergeCells>");
+        }
+        dataValidationMerger.flush();
+        if (!dataValidations.isEmpty()) {
+            writer.write("<dataValidations count=\"" + dataValidations.size() + "\">");
+            for (DataValidationMerger.Range range : dataValidations) {
+                // 仅有提示，下拉列表在启动时已被拒绝
+                writer.write("<dataValidation type=\"custom\" allowBlank=\"1\" showInputMessage=\"1\" promptTitle=\"");
+                this.writeEscaped(range.rule.promptTitle);
+                writer.write("\" prompt=\"");
+                this.writeEscaped(range.rule.promptText);
+                writer.write("\" sqref=\"" + this.getColumnName(range.firstCol) + (range.firstRow + 1)
+                        + ":" + this.getColumnName(range.lastCol) + (range.lastRow + 1) + "\"><formula1>BB1</formula1></dataValidation>");
+            }
+            writer.write("</dataValidations>");
+        }
+        if (!hyperlinks.isEmpty()) {
+            writer.write("<hyperlinks>");
+            for (int i = 0, size = hyperlinks.size(); i < size; i++) {
+                writer.write("<hyperlink ref=\"" + hyperlinks.get(i)[0] + "\" r:id=\"rId" + (i + 1) + "\"/>");
+            }
+            writer.write("</hyperlinks>");
+        }
+        writer.write("</worksheet>");
+        writer.flush();
+        out.closeEntry();
+        if (!hyperlinks.isEmpty()) {
+            out.putNextEntry(new ZipEntry("xl/worksheets/_rels/sheet" + sheetNames.size() + ".xml.rels"));
+            writer.write(XML_HEADER);
+            writer.write("<Relationships xmlns=\"" + NS_PACKAGE_RELATIONSHIPS + "\">");
+            for (int i = 0, size = hyperlinks.size(); i < size; i++) {
+                writer.write("<Relationship Id=\"rId" + (i + 1) + "\" Type=\"" + NS_RELATIONSHIPS + "/hyperlink\" Target=\"");
+                this.writeEscaped(hyperlinks.get(i)[1]);
+                writer.write("\" TargetMode=\"External\"/>");
+            }
+            writer.write("</Relationships>");
+            writer.flush();
+            out.closeEntry();
+        }
+        sheetOpened = false;
+        stagingTds.clear();
+        mergeCells.clear();
+        mergedRegionIndex = new MergedRegionIndex();
+        hyperlinks.clear();
+        dataValidations.clear();
+        columnWidths.clear();
+    }
+
+    /**
+     * 完结所有sheet，写入styles、workbook等部件并关闭文件
+     *
+     * @throws IOException IOException
+     */
+    void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        if (sheetNames.isEmpty()) {
+            this.createSheet("Sheet");
+        }
+        this.closeSheet();
+
+        out.putNextEntry(new ZipEntry("xl/styles.xml"));
+        stylesTable.writeTo(out);
+        out.closeEntry();
+
+        out.putNextEntry(new ZipEntry("xl/workbook.xml"));
+        writer.write(XML_HEADER);
+        writer.write("<workbook xmlns=\"" + NS_MAIN + "\" xmlns:r=\"" + NS_RELATIONSHIPS + "\"><sheets>");
+        for (int i = 1, size = sheetNames.size(); i <= size; i++) {
+            writer.write("<sheet name=\"");
+            this.writeEscaped(sheetNames.get(i - 1));
+            writer.write("\" sheetId=\"" + i + "\" r:id=\"rId" + i + "\"/>");
+        }
+        writer.write("</sheets></workbook>");
+        writer.flush();
+        out.closeEntry();
+
+        out.putNextEntry(new ZipEntry("xl/_rels/workbook.xml.rels"));
+        writer.write(XML_HEADER);
+        writer.write("<Relationships xmlns=\"" + NS_PACKAGE_RELATIONSHIPS + "\">");
+        for (int i = 1, size = sheetNames.size(); i <= size; i++) {
+            writer.write("<Relationship Id=\"rId" + i + "\" Type=\"" + NS_RELATIONSHIPS + "/worksheet\" Target=\"worksheets/sheet" + i + ".xml\"/>");
+        }
+        writer.write("<Relationship Id=\"rId" + (sheetNames.size() + 1) + "\" Type=\"" + NS_RELATIONSHIPS + "/styles\" Target=\"styles.xml\"/>");
+        writer.write("</Relationships>");
+        writer.flush();
+        out.closeEntry();
+
+        out.putNextEntry(new ZipEntry("_rels/.rels"));
+        writer.write(XML_HEADER);
+        writer.write("<Relationships xmlns=\"" + NS_PACKAGE_RELATIONSHIPS + "\">"
+                + "<Relationship Id=\"rId1\" Type=\"" + NS_RELATIONSHIPS + "/officeDocument\" Target=\"xl/workbook.xml\"/>"
+                + "</Relationships>");
+        writer.flush();
+        out.closeEntry();
+
+        out.putNextEntry(new ZipEntry("[Content_Types].xml"));
+        writer.write(XML_HEADER);
+        writer.write("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+                + "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+                + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+                + "<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>"
+                + "<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>");
+        for (int i = 1, size = sheetNames.size(); i <= size; i++) {
+            writer.write("<Override PartName=\"/xl/worksheets/sheet" + i + ".xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+        }
+        writer.write("</Types>");
+        writer.flush();
+        out.closeEntry();
+        finished = true;
+        out.close();
+        TempFileOperator.deleteTempFile(sheetDataPath);
+    }
+
+    private void writeEscaped(String s) throws IOException {
+        if (s == null) {
+            return;
+        }
+        for (int i = 0, length = s.length(); i < length; i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '<':
+                    writer.write("&lt;");
+                    break;
+                case '>':
+                    writer.write("&gt;");
+                    break;
+                case '&':
+                    writer.write("&amp;");
+                    break;
+                case '"':
+                    writer.write("&quot;");
+                    break;
+                case '\t':
+                case '\n':
+                case '\r':
+                    writer.write(c);
+                    break;
+                default:
+                    // xml不允许的控制字符直接丢弃
+                    if (c >= 0x20 && c != 0xFFFE && c != 0xFFFF) {
+                        writer.write(c);
+                    }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        try {
+            if (sheetDataWriter != null) {
+                sheetDataWriter.close();
+            }
+            out.close();
+        } finally {
+            TempFileOperator.deleteTempFile(sheetDataPath);
+        }
+    }
+}
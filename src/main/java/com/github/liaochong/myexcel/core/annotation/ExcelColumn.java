@@ -170,4 +170,11 @@ public @interface ExcelColumn {
      * @return 下拉列表配置
      */
     DropdownList dropdownList() default @DropdownList;
+
+    /**
+     * 是否纵向合并相邻且值相同的单元格，仅流式导出有效
+     *
+     * @return true/false
+     */
+    boolean mergeSame() default false;
 }
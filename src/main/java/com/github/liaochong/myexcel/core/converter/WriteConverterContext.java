@@ -31,6 +31,7 @@ import com.github.liaochong.myexcel.core.converter.writer.MappingWriteConverter;
 import com.github.liaochong.myexcel.core.converter.writer.MultiWriteConverter;
 import com.github.liaochong.myexcel.core.converter.writer.OriginalWriteConverter;
 import com.github.liaochong.myexcel.core.converter.writer.StringWriteConverter;
+import com.github.liaochong.myexcel.utils.FieldAccessor;
 import com.github.liaochong.myexcel.utils.FieldDefinition;
 import com.github.liaochong.myexcel.utils.ReflectUtil;
 
@@ -75,7 +76,7 @@ public class WriteConverterContext {
     }
 
     public static Pair<? extends Class, Object> convert(FieldDefinition fieldDefinition, Object object, ConvertContext convertContext) {
-        Object result = getFieldVal(fieldDefinition, object);
+        Object result = getFieldValue(fieldDefinition, object);
         if (result == null) {
             return Constants.NULL_PAIR;
         }
@@ -83,28 +84,23 @@ public class WriteConverterContext {
         return writeConverter.convert(fieldDefinition.getField(), fieldDefinition.getField().getType(), result, convertContext);
     }
 
-    private static Object getFieldVal(FieldDefinition fieldDefinition, Object object) {
-        Object result;
+    public static Object getFieldValue(FieldDefinition fieldDefinition, Object object) {
         if (fieldDefinition.getParentFields() == null
                 || fieldDefinition.getParentFields().isEmpty()) {
-            result = ReflectUtil.getFieldValue(object, fieldDefinition);
-        } else {
-            Object prevObj;
-            try {
-                prevObj = object;
-                for (int i = 0, size = fieldDefinition.getParentFields().size(); i < size; i++) {
-                    Field parentField = fieldDefinition.getParentFields().get(i);
-                    prevObj = parentField.get(prevObj);
-                }
-                if (prevObj == null) {
-                    return null;
-                }
-            } catch (IllegalAccessException e) {
-                throw new RuntimeException(e);
+            return ReflectUtil.getFieldValue(object, fieldDefinition);
+        }
+        Object prevObj = object;
+        for (FieldAccessor parentAccessor : fieldDefinition.getParentAccessors()) {
+            if (prevObj == null) {
+                return null;
             }
-            result = ReflectUtil.getFieldValue(prevObj, fieldDefinition);
+            prevObj = parentAccessor.get(prevObj);
         }
-        return result;
+        return ReflectUtil.getFieldValue(prevObj, fieldDefinition);
+    }
+
+    public static WriteConverter getWriteConverter(Field field, Class<?> fieldType, Object result, ConvertContext convertContext) {
+        return getWriteConverter(field, fieldType, result, convertContext, WRITE_CONVERTER_CONTAINER);
     }
 
     public static WriteConverter getWriteConverter(Field field, Class<?> fieldType, Object result, ConvertContext convertContext, List<Pair<Class, WriteConverter>> writeConverterContainer) {
@@ -40,7 +40,7 @@ public class BigDecimalWriteConverter implements WriteConverter {
     @Override
     public Pair<Class, Object> convert(Field field, Class<?> fieldType, Object fieldVal, ConvertContext convertContext) {
         if (!convertContext.isConvertCsv) {
-            return Pair.of(Double.class, ((BigDecimal) fieldVal).toPlainString());
+            return Pair.of(Double.class, fieldVal);
         }
         ExcelColumnMapping excelColumnMapping = convertContext.excelColumnMappingMap.get(field);
         String format = convertContext.configuration.decimalFormat;
@@ -62,4 +62,8 @@ public enum ContentTypeEnum {
         return DROP_DOWN_LIST == contentTypeEnum || NUMBER_DROP_DOWN_LIST == contentTypeEnum || BOOLEAN_DROP_DOWN_LIST == contentTypeEnum;
     }
 
+    public static boolean isImage(ContentTypeEnum contentTypeEnum) {
+        return IMAGE == contentTypeEnum;
+    }
+
 }
@@ -5,26 +5,37 @@ import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * 下拉列表隐藏sheet索引，每个工作簿独立持有，同一工作簿内相同的选项仅写入一次
+ */
 public final class DropDownLists {
 
-    private static final Map<String, Index> INDEX = new ConcurrentHashMap<>();
+    private static final String HIDDEN_SHEET_NAME = "MyExcel_HiddenDat@List-0";
 
-    private DropDownLists() {
+    private final Workbook workbook;
+
+    private final Map<String, Index> index = new HashMap<>();
+
+    public DropDownLists(Workbook workbook) {
+        this.workbook = Objects.requireNonNull(workbook);
+    }
+
+    public Workbook getWorkbook() {
+        return workbook;
     }
 
-    public static Index getHiddenSheetIndex(String input, Workbook workbook) {
-        return INDEX.computeIfAbsent(input, hash -> createAndWriteHiddenSheet(input, workbook));
+    public Index getHiddenSheetIndex(String input) {
+        return index.computeIfAbsent(input, this::createAndWriteHiddenSheet);
     }
 
-    private static Index createAndWriteHiddenSheet(String input, Workbook workbook) {
-        String sheetName = "MyExcel_HiddenDat@List-0";
-        Sheet sheet = workbook.getSheet(sheetName);
+    private Index createAndWriteHiddenSheet(String input) {
+        Sheet sheet = workbook.getSheet(HIDDEN_SHEET_NAME);
         if (sheet == null) {
-            sheet = workbook.createSheet(sheetName);
+            sheet = workbook.createSheet(HIDDEN_SHEET_NAME);
             int index = workbook.getSheetIndex(sheet);
             workbook.setSheetHidden(index, true);
         }
@@ -36,7 +47,7 @@ public final class DropDownLists {
             cell.setCellValue(list[i]);
         }
         int displayRowNum = rowNum + 1;
-        return new Index(list[0], rowNum, "'" + sheetName + "'!$" + displayRowNum + ":$" + displayRowNum);
+        return new Index(list[0], rowNum, "'" + HIDDEN_SHEET_NAME + "'!$" + displayRowNum + ":$" + displayRowNum);
     }
 
     public static class Index {
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core.parser;
+
+import com.github.liaochong.myexcel.exception.ExcelBuildException;
+import org.apache.poi.poifs.filesystem.FileMagic;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.util.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * 已读取的图片内容，内容摘要相同的图片在工作簿中仅保存一份
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public final class ImageContent {
+    /**
+     * 图片字节
+     */
+    public final byte[] bytes;
+    /**
+     * 图片类型，取值为Workbook.PICTURE_TYPE_*
+     */
+    public final int format;
+    /**
+     * 内容摘要，SHA-1
+     */
+    public final String digest;
+
+    private ImageContent(byte[] bytes, int format) {
+        this.bytes = bytes;
+        this.format = format;
+        this.digest = digest(bytes);
+    }
+
+    /**
+     * 读取图片文件，根据文件后缀确定图片类型
+     *
+     * @param file 图片文件
+     * @return ImageContent
+     */
+    public static ImageContent of(File file) {
+        String fileName = file.getName();
+        String suffix = fileName.substring(fileName.lastIndexOf(".") + 1).toLowerCase();
+        int format;
+        switch (suffix) {
+            case "jpg":
+            case "jpeg":
+                format = Workbook.PICTURE_TYPE_JPEG;
+                break;
+            case "png":
+                format = Workbook.PICTURE_TYPE_PNG;
+                break;
+            case "dib":
+                format = Workbook.PICTURE_TYPE_DIB;
+                break;
+            case "emf":
+                format = Workbook.PICTURE_TYPE_EMF;
+                break;
+            case "pict":
+                format = Workbook.PICTURE_TYPE_PICT;
+                break;
+            case "wmf":
+                format = Workbook.PICTURE_TYPE_WMF;
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid image type");
+        }
+        try {
+            return new ImageContent(Files.readAllBytes(file.toPath()), format);
+        } catch (IOException e) {
+            throw new ExcelBuildException("read image failure, path:" + file.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * 读取图片流，根据文件头确定图片类型，读取后关闭流
+     *
+     * @param inputStream 图片流
+     * @return ImageContent
+     */
+    public static ImageContent of(InputStream inputStream) {
+        try (InputStream is = FileMagic.prepareToCheckMagic(inputStream)) {
+            FileMagic fm = FileMagic.valueOf(is);
+            int format;
+            switch (fm) {
+                case JPEG:
+                    format = Workbook.PICTURE_TYPE_JPEG;
+                    break;
+                case PNG:
+                    format = Workbook.PICTURE_TYPE_PNG;
+                    break;
+                case EMF:
+                    format = Workbook.PICTURE_TYPE_EMF;
+                    break;
+                case WMF:
+                    format = Workbook.PICTURE_TYPE_WMF;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Invalid image type");
+            }
+            return new ImageContent(IOUtils.toByteArray(is), format);
+        } catch (Throwable throwable) {
+            throw new ExcelBuildException("read image failure, unsupported or unreadable image stream", throwable);
+        }
+    }
+
+    private static String digest(byte[] bytes) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-1");
+            return Base64.getEncoder().encodeToString(messageDigest.digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
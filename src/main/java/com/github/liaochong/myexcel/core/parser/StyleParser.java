@@ -21,6 +21,7 @@ import com.github.liaochong.myexcel.utils.StyleUtil;
 import com.github.liaochong.myexcel.utils.TdUtil;
 
 import java.lang.reflect.Field;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -63,9 +64,13 @@ public final class StyleParser {
      */
     private final Map<String, Map<String, String>> eachColumnStyle = new HashMap<>();
     /**
-     * 格式样式Map
+     * 已解析的单元格样式，下标为[奇偶行][列]，列首次使用时解析，样式配置变化时清空
      */
-    private final Map<String, Map<String, String>> formatsStyleMap = new HashMap<>();
+    private ResolvedStyle[][] resolvedStyles = new ResolvedStyle[2][0];
+    /**
+     * 样式ID，内容相同的样式共用同一ID，ID从1开始
+     */
+    private final Map<Map<String, String>, Integer> styleIdMap = new HashMap<>();
     /**
      * 自定义宽度
      */
@@ -92,6 +97,7 @@ public final class StyleParser {
         if (noStyle) {
             return;
         }
+        this.clearResolvedStyles();
         Map<String, String> styleMap = new HashMap<>();
         styles.forEach(style -> {
             String[] splits = style.split(Constants.ARROW);
@@ -130,6 +136,7 @@ public final class StyleParser {
         if (noStyle) {
             return;
         }
+        this.clearResolvedStyles();
         setEachColumnStyle("title", fieldIndex, globalTitleStyle);
         setEachColumnStyle("even", fieldIndex, globalEvenStyle);
         setEachColumnStyle("odd", fieldIndex, globalCommonStyle);
@@ -173,48 +180,105 @@ public final class StyleParser {
         return eachColumnStyle.getOrDefault(styleKey, globalTitleStyle);
     }
 
+    /**
+     * 获取样式ID，内容相同的样式返回相同ID，写入时可按ID直接定位单元格样式
+     *
+     * @param style 样式
+     * @return 样式ID，空样式返回0
+     */
+    public int getStyleId(Map<String, String> style) {
+        if (style.isEmpty()) {
+            return 0;
+        }
+        Integer styleId = styleIdMap.get(style);
+        if (styleId == null) {
+            styleId = styleIdMap.size() + 1;
+            // 样式可能被后续修改，以副本作为键
+            styleIdMap.put(new HashMap<>(style), styleId);
+        }
+        return styleId;
+    }
+
     public void toggle() {
         isOddRow = !isOddRow;
     }
 
     public Map<String, String> getCellStyle(int fieldIndex, ContentTypeEnum contentType, String format) {
-        Map<String, String> style = Collections.emptyMap();
-        if (!noStyle) {
-            style = eachColumnStyle.get((isOddRow ? "odd&" : "even&") + fieldIndex);
-            Map<String, String> cellStyleMap = eachColumnStyle.get("cell&" + fieldIndex);
-            if (cellStyleMap != null) {
-                if (style == null || style.isEmpty()) {
-                    style = cellStyleMap;
-                } else {
-                    style = new HashMap<>(style);
-                    style.putAll(cellStyleMap);
-                }
-            }
-            if (style == null && !globalCellStyle.isEmpty()) {
-                style = globalCellStyle;
-            }
-            if (style == null) {
-                style = isOddRow ? globalCommonStyle : globalEvenStyle;
+        return this.getResolvedStyle(fieldIndex, contentType, format).style;
+    }
+
+    /**
+     * 设置单元格样式及样式ID
+     *
+     * @param td         单元格
+     * @param fieldIndex 列
+     */
+    public void setCellStyle(Td td, int fieldIndex) {
+        ResolvedStyle resolvedStyle = this.getResolvedStyle(fieldIndex, td.tdContentType, td.format);
+        td.style = resolvedStyle.style;
+        td.styleId = resolvedStyle.styleId;
+    }
+
+    private ResolvedStyle getResolvedStyle(int fieldIndex, ContentTypeEnum contentType, String format) {
+        int parity = isOddRow ? 0 : 1;
+        ResolvedStyle[] columnStyles = resolvedStyles[parity];
+        if (fieldIndex >= columnStyles.length) {
+            int length = Math.max(fieldIndex + 1, columnStyles.length << 1);
+            resolvedStyles[0] = Arrays.copyOf(resolvedStyles[0], length);
+            resolvedStyles[1] = Arrays.copyOf(resolvedStyles[1], length);
+            columnStyles = resolvedStyles[parity];
+        }
+        ResolvedStyle resolvedStyle = columnStyles[fieldIndex];
+        if (resolvedStyle == null) {
+            resolvedStyle = this.resolve(this.resolveCellStyle(fieldIndex));
+            columnStyles[fieldIndex] = resolvedStyle;
+        }
+        if (ContentTypeEnum.isLink(contentType)) {
+            if (resolvedStyle.link == null) {
+                resolvedStyle.link = this.resolve(this.resolveLinkStyle(resolvedStyle.style));
             }
-            if (ContentTypeEnum.isLink(contentType)) {
+            resolvedStyle = resolvedStyle.link;
+        }
+        if (format == null) {
+            return resolvedStyle;
+        }
+        return resolvedStyle.getFormatStyle(format);
+    }
+
+    private ResolvedStyle resolve(Map<String, String> style) {
+        return new ResolvedStyle(style, this.getStyleId(style));
+    }
+
+    private Map<String, String> resolveCellStyle(int fieldIndex) {
+        if (noStyle) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> style = eachColumnStyle.get((isOddRow ? "odd&" : "even&") + fieldIndex);
+        Map<String, String> cellStyleMap = eachColumnStyle.get("cell&" + fieldIndex);
+        if (cellStyleMap != null) {
+            if (style == null || style.isEmpty()) {
+                style = cellStyleMap;
+            } else {
                 style = new HashMap<>(style);
-                style.putAll(globalLinkStyle);
+                style.putAll(cellStyleMap);
             }
         }
-        if (format != null) {
-            style = this.getFormatStyle(format, fieldIndex, style);
+        if (style == null && !globalCellStyle.isEmpty()) {
+            style = globalCellStyle;
+        }
+        if (style == null) {
+            style = isOddRow ? globalCommonStyle : globalEvenStyle;
         }
         return style;
     }
 
-    private Map<String, String> getFormatStyle(String format, int fieldIndex, Map<String, String> style) {
-        Map<String, String> formatStyle = formatsStyleMap.get(format + "_" + fieldIndex + "_" + (isOddRow ? "odd&" : "even&"));
-        if (formatStyle == null) {
-            formatStyle = new HashMap<>(style);
-            formatStyle.put("format", format);
-            formatsStyleMap.put(format + "_" + fieldIndex, formatStyle);
+    private Map<String, String> resolveLinkStyle(Map<String, String> style) {
+        if (noStyle) {
+            return style;
         }
-        return formatStyle;
+        Map<String, String> linkStyle = new HashMap<>(style);
+        linkStyle.putAll(globalLinkStyle);
+        return linkStyle;
     }
 
     private void setWidth(int fieldIndex, Map<String, String> styleMap) {
@@ -229,6 +293,57 @@ public final class StyleParser {
     }
 
     public void setNoStyle(boolean noStyle) {
+        if (this.noStyle != noStyle) {
+            this.clearResolvedStyles();
+        }
         this.noStyle = noStyle;
     }
+
+    private void clearResolvedStyles() {
+        resolvedStyles = new ResolvedStyle[2][0];
+    }
+
+    /**
+     * 已解析的样式，附带超链接及格式化变体
+     */
+    private final class ResolvedStyle {
+
+        final Map<String, String> style;
+
+        final int styleId;
+
+        ResolvedStyle link;
+        /**
+         * 最近使用的格式化变体，同一列格式通常不变
+         */
+        private ResolvedStyle lastFormatStyle;
+
+        private String lastFormat;
+
+        private Map<String, ResolvedStyle> formatStyles;
+
+        ResolvedStyle(Map<String, String> style, int styleId) {
+            this.style = style;
+            this.styleId = styleId;
+        }
+
+        ResolvedStyle getFormatStyle(String format) {
+            if (format.equals(lastFormat)) {
+                return lastFormatStyle;
+            }
+            if (formatStyles == null) {
+                formatStyles = new HashMap<>();
+            }
+            ResolvedStyle formatStyle = formatStyles.get(format);
+            if (formatStyle == null) {
+                Map<String, String> formatStyleMap = new HashMap<>(style);
+                formatStyleMap.put("format", format);
+                formatStyle = resolve(formatStyleMap);
+                formatStyles.put(format, formatStyle);
+            }
+            lastFormat = format;
+            lastFormatStyle = formatStyle;
+            return formatStyle;
+        }
+    }
 }
@@ -52,6 +52,14 @@ public class Td {
      * 内容
      */
     public String content;
+    /**
+     * 数值内容，保留原始数值，写入单元格时再转换，避免字符串往返
+     */
+    public Number number;
+    /**
+     * 布尔内容
+     */
+    public Boolean bool;
     /**
      * 内容类型
      */
@@ -64,6 +72,10 @@ public class Td {
      * 单元格样式
      */
     public Map<String, String> style = Collections.emptyMap();
+    /**
+     * 样式ID，内容相同的样式共用同一ID，0表示未分配
+     */
+    public int styleId;
     /**
      * 公式
      */
@@ -80,6 +92,10 @@ public class Td {
      * 文件流
      */
     public InputStream fileIs;
+    /**
+     * 预加载的图片内容
+     */
+    public ImageContent imageContent;
     /**
      * 格式化
      */
@@ -113,6 +129,10 @@ public class Td {
      * 下拉列表配置
      */
     public DropdownList dropdownList;
+    /**
+     * 是否与上方相邻的相同值合并
+     */
+    public boolean mergeSame;
 
     public Td(int row, int col) {
         this.row = row;
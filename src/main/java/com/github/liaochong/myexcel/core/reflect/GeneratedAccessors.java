@@ -0,0 +1,37 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core.reflect;
+
+import com.github.liaochong.myexcel.utils.FieldAccessor;
+
+/**
+ * 编译期生成的字段访问器集合，由myexcel-processor为模型类生成，类名为模型类名加{@value #SUFFIX}后缀。
+ * 存在时运行期优先使用，不再通过反射及内省读写字段
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public interface GeneratedAccessors {
+
+    String SUFFIX = "_MyExcelAccessors";
+
+    /**
+     * 获取字段访问器
+     *
+     * @param fieldName 字段名称
+     * @return 字段访问器，未生成时返回null
+     */
+    FieldAccessor get(String fieldName);
+}
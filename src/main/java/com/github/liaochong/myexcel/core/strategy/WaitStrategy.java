@@ -0,0 +1,50 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core.strategy;
+
+import java.util.Objects;
+
+/**
+ * 流式导出时数据交接的等待策略
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public enum WaitStrategy {
+    /**
+     * 自旋等待，延迟最低，但会持续占用CPU
+     */
+    SPIN,
+    /**
+     * 自旋后让出CPU
+     */
+    YIELD,
+    /**
+     * 短暂自旋后挂起线程，有数据时唤醒，默认策略
+     */
+    PARK;
+
+    public static boolean isSpin(WaitStrategy waitStrategy) {
+        return Objects.equals(waitStrategy, SPIN);
+    }
+
+    public static boolean isYield(WaitStrategy waitStrategy) {
+        return Objects.equals(waitStrategy, YIELD);
+    }
+
+    public static boolean isPark(WaitStrategy waitStrategy) {
+        return Objects.equals(waitStrategy, PARK);
+    }
+}
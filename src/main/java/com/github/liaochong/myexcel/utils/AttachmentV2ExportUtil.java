@@ -33,6 +33,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.nio.channels.Channels;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.GeneralSecurityException;
@@ -139,7 +140,7 @@ public final class AttachmentV2ExportUtil {
         try {
             response.setContentType("application/octet-stream");
             setAttachmentConfig(fileName, response);
-            response.getOutputStream().write(Files.readAllBytes(path));
+            FileExportUtil.transferTo(path, Channels.newChannel(response.getOutputStream()));
         } catch (IOException e) {
             throw new RuntimeException(e);
         } finally {
@@ -0,0 +1,447 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.utils;
+
+import com.github.liaochong.myexcel.core.cache.WeakCache;
+import com.github.liaochong.myexcel.core.reflect.GeneratedAccessors;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * 字段访问器，公开的getter/setter通过LambdaMetafactory生成调用，其余情况使用MethodHandle，
+ * int、long、double、boolean类型字段提供免装箱的读写方法。模型类存在编译期生成的访问器时优先使用生成的访问器
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public final class FieldAccessor {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    /**
+     * 编译期生成的访问器集合，无生成类时缓存ABSENT
+     */
+    private static final WeakCache<Class<?>, Object> GENERATED_CACHE = new WeakCache<>();
+
+    private static final Object ABSENT = new Object();
+
+    private final Class<?> fieldType;
+
+    private Function<Object, Object> getter;
+
+    private BiConsumer<Object, Object> setter;
+
+    private ObjIntConsumer<Object> intSetter;
+
+    private ObjLongConsumer<Object> longSetter;
+
+    private ObjDoubleConsumer<Object> doubleSetter;
+
+    private ObjBooleanConsumer<Object> booleanSetter;
+
+    private FieldAccessor(Class<?> fieldType) {
+        this.fieldType = fieldType;
+    }
+
+    public static FieldAccessor of(FieldDefinition fieldDefinition) {
+        Field field = fieldDefinition.getField();
+        FieldAccessor accessor = new FieldAccessor(field.getType());
+        try {
+            accessor.initGetter(field, fieldDefinition.getGetMethod());
+            accessor.initSetter(field, fieldDefinition.getSetMethod());
+        } catch (Throwable e) {
+            throw new IllegalStateException("Failed to create accessor for field " + field.getDeclaringClass().getName() + "#" + field.getName(), e);
+        }
+        return accessor;
+    }
+
+    /**
+     * 获取编译期生成的字段访问器
+     *
+     * @param field 字段
+     * @return 字段访问器，未生成时返回null
+     */
+    public static FieldAccessor ofGenerated(Field field) {
+        Class<?> declaringClass = field.getDeclaringClass();
+        Object generated = GENERATED_CACHE.get(declaringClass);
+        if (generated == null) {
+            generated = loadGenerated(declaringClass);
+            GENERATED_CACHE.cache(declaringClass, generated);
+        }
+        if (generated == ABSENT) {
+            return null;
+        }
+        FieldAccessor accessor = ((GeneratedAccessors) generated).get(field.getName());
+        if (accessor != null && accessor.fieldType != field.getType()) {
+            // 生成类与当前类版本不一致
+            return null;
+        }
+        return accessor;
+    }
+
+    private static Object loadGenerated(Class<?> clazz) {
+        ClassLoader classLoader = clazz.getClassLoader();
+        if (classLoader == null) {
+            return ABSENT;
+        }
+        try {
+            Class<?> generatedClass = Class.forName(clazz.getName() + GeneratedAccessors.SUFFIX, true, classLoader);
+            if (!GeneratedAccessors.class.isAssignableFrom(generatedClass)) {
+                return ABSENT;
+            }
+            return generatedClass.newInstance();
+        } catch (ClassNotFoundException | LinkageError e) {
+            return ABSENT;
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to create generated accessors of " + clazz.getName(), e);
+        }
+    }
+
+    /**
+     * 供生成类使用，setter为null时字段不可写，由{@link FieldDefinition}改用反射写入
+     *
+     * @param fieldType 字段类型
+     * @param getter    读取方法
+     * @param setter    写入方法
+     * @return 字段访问器
+     */
+    public static FieldAccessor of(Class<?> fieldType, Function<Object, Object> getter, BiConsumer<Object, Object> setter) {
+        FieldAccessor accessor = new FieldAccessor(fieldType);
+        accessor.getter = getter;
+        accessor.setter = setter;
+        return accessor;
+    }
+
+    public static FieldAccessor ofInt(ToIntFunction<Object> getter, ObjIntConsumer<Object> setter) {
+        FieldAccessor accessor = new FieldAccessor(int.class);
+        accessor.getter = getter::applyAsInt;
+        accessor.intSetter = setter;
+        accessor.setter = setter == null ? null : (target, value) -> setter.accept(target, ((Number) value).intValue());
+        return accessor;
+    }
+
+    public static FieldAccessor ofLong(ToLongFunction<Object> getter, ObjLongConsumer<Object> setter) {
+        FieldAccessor accessor = new FieldAccessor(long.class);
+        accessor.getter = getter::applyAsLong;
+        accessor.longSetter = setter;
+        accessor.setter = setter == null ? null : (target, value) -> setter.accept(target, ((Number) value).longValue());
+        return accessor;
+    }
+
+    public static FieldAccessor ofDouble(ToDoubleFunction<Object> getter, ObjDoubleConsumer<Object> setter) {
+        FieldAccessor accessor = new FieldAccessor(double.class);
+        accessor.getter = getter::applyAsDouble;
+        accessor.doubleSetter = setter;
+        accessor.setter = setter == null ? null : (target, value) -> setter.accept(target, ((Number) value).doubleValue());
+        return accessor;
+    }
+
+    public static FieldAccessor ofBoolean(Predicate<Object> getter, ObjBooleanConsumer<Object> setter) {
+        FieldAccessor accessor = new FieldAccessor(boolean.class);
+        accessor.getter = getter::test;
+        accessor.booleanSetter = setter;
+        accessor.setter = setter == null ? null : (target, value) -> setter.accept(target, (Boolean) value);
+        return accessor;
+    }
+
+    /**
+     * 生成的访问器是否可写
+     *
+     * @return true/false
+     */
+    boolean isWritable() {
+        return setter != null;
+    }
+
+    /**
+     * 保留当前读取方法，写入使用另一访问器，用于生成的访问器不可写时回退到反射写入
+     *
+     * @param writer 写入使用的访问器
+     * @return 字段访问器
+     */
+    FieldAccessor withSetterOf(FieldAccessor writer) {
+        FieldAccessor accessor = new FieldAccessor(fieldType);
+        accessor.getter = getter;
+        accessor.setter = writer.setter;
+        accessor.intSetter = writer.intSetter;
+        accessor.longSetter = writer.longSetter;
+        accessor.doubleSetter = writer.doubleSetter;
+        accessor.booleanSetter = writer.booleanSetter;
+        return accessor;
+    }
+
+    public Object get(Object target) {
+        return getter.apply(target);
+    }
+
+    public void set(Object target, Object value) {
+        if (value != null && fieldType.isPrimitive()) {
+            if (fieldType == int.class) {
+                this.setInt(target, ((Number) value).intValue());
+                return;
+            }
+            if (fieldType == long.class) {
+                this.setLong(target, ((Number) value).longValue());
+                return;
+            }
+            if (fieldType == double.class) {
+                this.setDouble(target, ((Number) value).doubleValue());
+                return;
+            }
+            if (fieldType == boolean.class) {
+                this.setBoolean(target, (Boolean) value);
+                return;
+            }
+        }
+        setter.accept(target, value);
+    }
+
+    public void setInt(Object target, int value) {
+        if (intSetter != null) {
+            intSetter.accept(target, value);
+        } else {
+            setter.accept(target, value);
+        }
+    }
+
+    public void setLong(Object target, long value) {
+        if (longSetter != null) {
+            longSetter.accept(target, value);
+        } else {
+            setter.accept(target, value);
+        }
+    }
+
+    public void setDouble(Object target, double value) {
+        if (doubleSetter != null) {
+            doubleSetter.accept(target, value);
+        } else {
+            setter.accept(target, value);
+        }
+    }
+
+    public void setBoolean(Object target, boolean value) {
+        if (booleanSetter != null) {
+            booleanSetter.accept(target, value);
+        } else {
+            setter.accept(target, value);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void initGetter(Field field, Method getMethod) throws Throwable {
+        if (getMethod != null && isLambdaAccessible(getMethod)) {
+            MethodHandle handle = LOOKUP.unreflect(getMethod);
+            Class<?> owner = getMethod.getDeclaringClass();
+            Class<?> returnType = getMethod.getReturnType();
+            getter = lambda(Function.class, "apply", MethodType.methodType(Object.class, Object.class),
+                    handle, MethodType.methodType(wrap(returnType), owner));
+            return;
+        }
+        MethodHandle handle;
+        if (getMethod != null) {
+            getMethod.setAccessible(true);
+            handle = LOOKUP.unreflect(getMethod);
+        } else {
+            field.setAccessible(true);
+            handle = LOOKUP.unreflectGetter(field);
+        }
+        MethodHandle objectHandle = handle.asType(MethodType.methodType(Object.class, Object.class));
+        getter = target -> {
+            try {
+                return objectHandle.invokeExact(target);
+            } catch (Throwable e) {
+                throw new RuntimeException(e);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private void initSetter(Field field, Method setMethod) throws Throwable {
+        if (setMethod != null && isLambdaAccessible(setMethod)) {
+            MethodHandle handle = LOOKUP.unreflect(setMethod);
+            Class<?> owner = setMethod.getDeclaringClass();
+            Class<?> paramType = setMethod.getParameterTypes()[0];
+            setter = lambda(BiConsumer.class, "accept", MethodType.methodType(void.class, Object.class, Object.class),
+                    handle, MethodType.methodType(void.class, owner, wrap(paramType)));
+            if (paramType == int.class) {
+                intSetter = lambda(ObjIntConsumer.class, "accept", MethodType.methodType(void.class, Object.class, int.class),
+                        handle, MethodType.methodType(void.class, owner, int.class));
+            } else if (paramType == long.class) {
+                longSetter = lambda(ObjLongConsumer.class, "accept", MethodType.methodType(void.class, Object.class, long.class),
+                        handle, MethodType.methodType(void.class, owner, long.class));
+            } else if (paramType == double.class) {
+                doubleSetter = lambda(ObjDoubleConsumer.class, "accept", MethodType.methodType(void.class, Object.class, double.class),
+                        handle, MethodType.methodType(void.class, owner, double.class));
+            } else if (paramType == boolean.class) {
+                booleanSetter = lambda(ObjBooleanConsumer.class, "accept", MethodType.methodType(void.class, Object.class, boolean.class),
+                        handle, MethodType.methodType(void.class, owner, boolean.class));
+            }
+            return;
+        }
+        MethodHandle handle;
+        if (setMethod != null) {
+            setMethod.setAccessible(true);
+            handle = LOOKUP.unreflect(setMethod);
+            if (handle.type().returnType() != void.class) {
+                // 链式setter，丢弃返回值
+                handle = handle.asType(handle.type().changeReturnType(void.class));
+            }
+        } else {
+            field.setAccessible(true);
+            try {
+                handle = LOOKUP.unreflectSetter(field);
+            } catch (IllegalAccessException e) {
+                // 部分JDK不允许通过MethodHandle写入final字段，与反射写入保持一致
+                setter = (target, value) -> {
+                    try {
+                        field.set(target, value);
+                    } catch (IllegalAccessException ex) {
+                        throw new RuntimeException(ex);
+                    }
+                };
+                return;
+            }
+        }
+        MethodHandle objectHandle = handle.asType(MethodType.methodType(void.class, Object.class, Object.class));
+        setter = (target, value) -> {
+            try {
+                objectHandle.invokeExact(target, value);
+            } catch (Throwable e) {
+                throw new RuntimeException(e);
+            }
+        };
+        Class<?> type = handle.type().parameterType(1);
+        if (type == int.class) {
+            MethodHandle h = handle.asType(MethodType.methodType(void.class, Object.class, int.class));
+            intSetter = (target, value) -> {
+                try {
+                    h.invokeExact(target, value);
+                } catch (Throwable e) {
+                    throw new RuntimeException(e);
+                }
+            };
+        } else if (type == long.class) {
+            MethodHandle h = handle.asType(MethodType.methodType(void.class, Object.class, long.class));
+            longSetter = (target, value) -> {
+                try {
+                    h.invokeExact(target, value);
+                } catch (Throwable e) {
+                    throw new RuntimeException(e);
+                }
+            };
+        } else if (type == double.class) {
+            MethodHandle h = handle.asType(MethodType.methodType(void.class, Object.class, double.class));
+            doubleSetter = (target, value) -> {
+                try {
+                    h.invokeExact(target, value);
+                } catch (Throwable e) {
+                    throw new RuntimeException(e);
+                }
+            };
+        } else if (type == boolean.class) {
+            MethodHandle h = handle.asType(MethodType.methodType(void.class, Object.class, boolean.class));
+            booleanSetter = (target, value) -> {
+                try {
+                    h.invokeExact(target, value);
+                } catch (Throwable e) {
+                    throw new RuntimeException(e);
+                }
+            };
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T lambda(Class<? super T> functionalInterface, String methodName, MethodType samMethodType,
+                                MethodHandle implMethod, MethodType instantiatedMethodType) throws Throwable {
+        CallSite callSite = LambdaMetafactory.metafactory(LOOKUP, methodName, MethodType.methodType(functionalInterface),
+                samMethodType, implMethod, instantiatedMethodType);
+        return (T) callSite.getTarget().invoke();
+    }
+
+    /**
+     * 生成的lambda类由本类的类加载器定义，方法及其所在类需公开且对该类加载器可见
+     *
+     * @param method 方法
+     * @return true/false
+     */
+    private static boolean isLambdaAccessible(Method method) {
+        Class<?> owner = method.getDeclaringClass();
+        if (!Modifier.isPublic(method.getModifiers())) {
+            return false;
+        }
+        for (Class<?> c = owner; c != null; c = c.getEnclosingClass()) {
+            if (!Modifier.isPublic(c.getModifiers())) {
+                return false;
+            }
+        }
+        if (!isVisible(owner)) {
+            return false;
+        }
+        for (Class<?> parameterType : method.getParameterTypes()) {
+            if (!parameterType.isPrimitive() && !isVisible(parameterType)) {
+                return false;
+            }
+        }
+        return method.getReturnType().isPrimitive() || isVisible(method.getReturnType());
+    }
+
+    private static boolean isVisible(Class<?> clazz) {
+        while (clazz.isArray()) {
+            clazz = clazz.getComponentType();
+        }
+        if (clazz.isPrimitive()) {
+            return true;
+        }
+        try {
+            return Class.forName(clazz.getName(), false, FieldAccessor.class.getClassLoader()) == clazz;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static Class<?> wrap(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        }
+        return MethodType.methodType(type).wrap().returnType();
+    }
+
+    /**
+     * 对象与boolean值的消费者
+     *
+     * @param <T> 对象类型
+     */
+    @FunctionalInterface
+    public interface ObjBooleanConsumer<T> {
+
+        void accept(T t, boolean value);
+    }
+}
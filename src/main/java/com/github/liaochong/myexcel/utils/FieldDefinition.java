@@ -33,14 +33,47 @@ public class FieldDefinition {
 
     private Method setMethod;
 
+    private volatile FieldAccessor accessor;
+    /**
+     * 父字段访问器，与parentFields一一对应
+     */
+    private volatile FieldAccessor[] parentAccessors;
+    /**
+     * 编译期生成但不可写的访问器，写入时回退到反射
+     */
+    private FieldAccessor readOnlyGenerated;
+    /**
+     * getter/setter是否已内省，存在可写的生成访问器时延迟到首次获取方法时内省
+     */
+    private volatile boolean introspected;
+
     public FieldDefinition(Field field) {
         this.field = field;
-        try {
-            PropertyDescriptor propertyDescriptor = new PropertyDescriptor(field.getName(), field.getDeclaringClass());
-            this.getMethod = propertyDescriptor.getReadMethod();
-            this.setMethod = propertyDescriptor.getWriteMethod();
-        } catch (Exception e) {
-            // do nothing
+        FieldAccessor generated = field == null ? null : FieldAccessor.ofGenerated(field);
+        if (generated != null && generated.isWritable()) {
+            this.accessor = generated;
+            return;
+        }
+        this.readOnlyGenerated = generated;
+        this.introspect();
+    }
+
+    private void introspect() {
+        if (introspected) {
+            return;
+        }
+        synchronized (this) {
+            if (introspected) {
+                return;
+            }
+            try {
+                PropertyDescriptor propertyDescriptor = new PropertyDescriptor(field.getName(), field.getDeclaringClass());
+                this.getMethod = propertyDescriptor.getReadMethod();
+                this.setMethod = propertyDescriptor.getWriteMethod();
+            } catch (Exception e) {
+                // do nothing
+            }
+            introspected = true;
         }
     }
 
@@ -50,6 +83,8 @@ public class FieldDefinition {
 
     public void setField(Field field) {
         this.field = field;
+        this.readOnlyGenerated = null;
+        this.accessor = null;
     }
 
     public List<Field> getParentFields() {
@@ -58,21 +93,73 @@ public class FieldDefinition {
 
     public void setParentFields(List<Field> parentFields) {
         this.parentFields = parentFields;
+        this.parentAccessors = null;
     }
 
+    /**
+     * 获取父字段访问器，首次调用时创建，parentFields被原地追加时重新创建
+     *
+     * @return 父字段访问器
+     */
+    public FieldAccessor[] getParentAccessors() {
+        FieldAccessor[] accessors = parentAccessors;
+        List<Field> fields = parentFields;
+        if (accessors == null || accessors.length != fields.size()) {
+            accessors = new FieldAccessor[fields.size()];
+            for (int i = 0; i < accessors.length; i++) {
+                accessors[i] = new FieldDefinition(fields.get(i)).getAccessor();
+            }
+            parentAccessors = accessors;
+        }
+        return accessors;
+    }
+
+    /**
+     * 存在编译期生成的访问器时，首次调用才内省
+     *
+     * @return getter
+     */
     public Method getGetMethod() {
+        this.introspect();
         return getMethod;
     }
 
     public void setGetMethod(Method getMethod) {
+        this.introspect();
         this.getMethod = getMethod;
+        this.accessor = null;
     }
 
+    /**
+     * 存在编译期生成的访问器时，首次调用才内省
+     *
+     * @return setter
+     */
     public Method getSetMethod() {
+        this.introspect();
         return setMethod;
     }
 
     public void setSetMethod(Method setMethod) {
+        this.introspect();
         this.setMethod = setMethod;
+        this.accessor = null;
+    }
+
+    /**
+     * 获取字段访问器，首次调用时创建
+     *
+     * @return 字段访问器
+     */
+    public FieldAccessor getAccessor() {
+        FieldAccessor fieldAccessor = accessor;
+        if (fieldAccessor == null) {
+            fieldAccessor = FieldAccessor.of(this);
+            if (readOnlyGenerated != null) {
+                fieldAccessor = readOnlyGenerated.withSetterOf(fieldAccessor);
+            }
+            accessor = fieldAccessor;
+        }
+        return fieldAccessor;
     }
 }
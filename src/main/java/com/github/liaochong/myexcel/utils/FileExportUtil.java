@@ -31,9 +31,12 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
 /**
  * 文件导出工具类
@@ -124,7 +127,9 @@ public final class FileExportUtil {
         }
         Path path = TempFileOperator.createTempFile("tem_outs", suffix);
         try {
-            workbook.write(Files.newOutputStream(path));
+            try (OutputStream os = Files.newOutputStream(path)) {
+                workbook.write(os);
+            }
             if (workbook instanceof SXSSFWorkbook) {
                 ((SXSSFWorkbook) workbook).dispose();
             }
@@ -140,4 +145,21 @@ public final class FileExportUtil {
             TempFileOperator.deleteTempFile(path);
         }
     }
+
+    /**
+     * 将文件写入通道，目标同为文件或套接字通道时由操作系统直接传输，无需经过堆内存
+     *
+     * @param path   文件
+     * @param target 目标通道
+     * @throws IOException IOException
+     */
+    public static void transferTo(Path path, WritableByteChannel target) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long position = 0;
+            long size = channel.size();
+            while (position < size) {
+                position += channel.transferTo(position, size - position, target);
+            }
+        }
+    }
 }
@@ -22,7 +22,6 @@ import com.github.liaochong.myexcel.core.converter.ReadConverterContext;
 import com.github.liaochong.myexcel.core.reflect.ClassFieldContainer;
 
 import java.lang.reflect.Field;
-import java.lang.reflect.Method;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.time.LocalDate;
@@ -227,16 +226,7 @@ public final class ReflectUtil {
         if (o == null || fieldDefinition == null) {
             return null;
         }
-        try {
-            Method getMethod = fieldDefinition.getGetMethod();
-            if (getMethod != null) {
-                return getMethod.invoke(o);
-            } else {
-                return fieldDefinition.getField().get(o);
-            }
-        } catch (Exception e) {
-            throw new RuntimeException(e);
-        }
+        return fieldDefinition.getAccessor().get(o);
     }
 
     private static void getAllFieldsOfClass(Class<?> clazz, ClassFieldContainer container) {
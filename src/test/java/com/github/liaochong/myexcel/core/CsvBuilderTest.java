@@ -2,6 +2,7 @@ package com.github.liaochong.myexcel.core;
 
 import com.github.liaochong.myexcel.core.pojo.CsvPeople;
 import com.github.liaochong.myexcel.core.pojo.MultiPeople;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
@@ -94,6 +95,25 @@ class CsvBuilderTest extends BasicTest {
         csv.write(Paths.get(TEST_OUTPUT_DIR + "no_titles_append.csv"));
     }
 
+    @Test
+    void publisherBuild() throws Exception {
+        TestPublisher<CsvPeople> publisher = new TestPublisher<>(5000, i -> {
+            CsvPeople csvPeople = new CsvPeople();
+            csvPeople.setName("张三" + i);
+            return csvPeople;
+        });
+        CsvBuilder<CsvPeople> csvBuilder = CsvBuilder.of(CsvPeople.class);
+        PublisherSink.of(csvBuilder).subscribeTo(publisher).toCompletableFuture().join();
+        Assertions.assertTrue(publisher.getMaxOutstanding() <= 2000);
+        Csv csv = csvBuilder.build();
+        List<String> lines = Files.readAllLines(csv.getFilePath());
+        Assertions.assertEquals(5001, lines.size());
+        for (int i = 1; i <= 5000; i++) {
+            Assertions.assertTrue(lines.get(i).startsWith("张三" + (i - 1) + ","));
+        }
+        csv.write(Paths.get(TEST_OUTPUT_DIR + "publisher.csv"));
+    }
+
     private List<CsvPeople> data(int size) {
         BigDecimal oddMoney = new BigDecimal(109898);
         BigDecimal evenMoney = new BigDecimal(66666);
@@ -1,32 +1,66 @@
 package com.github.liaochong.myexcel.core;
 
 import com.github.liaochong.myexcel.core.pojo.CommonPeople;
+import com.github.liaochong.myexcel.core.pojo.CountingPeople;
 import com.github.liaochong.myexcel.core.pojo.CustomStylePeople;
 import com.github.liaochong.myexcel.core.pojo.Extention;
+import com.github.liaochong.myexcel.core.pojo.DropdownPeople;
 import com.github.liaochong.myexcel.core.pojo.Formula;
+import com.github.liaochong.myexcel.core.pojo.ImagePeople;
+import com.github.liaochong.myexcel.core.pojo.MergeSamePeople;
 import com.github.liaochong.myexcel.core.pojo.MultiPeople;
 import com.github.liaochong.myexcel.core.pojo.OddEvenStylePeople;
+import com.github.liaochong.myexcel.core.pojo.Person;
 import com.github.liaochong.myexcel.core.pojo.Product;
+import com.github.liaochong.myexcel.core.pojo.PromptPeople;
 import com.github.liaochong.myexcel.core.pojo.WidthPeople;
+import com.github.liaochong.myexcel.core.strategy.WaitStrategy;
 import com.github.liaochong.myexcel.core.templatehandler.FreemarkerTemplateHandler;
+import com.github.liaochong.myexcel.exception.ExcelBuildException;
 import com.github.liaochong.myexcel.utils.FileExportUtil;
 import com.github.liaochong.myexcel.utils.TempFileOperator;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DataValidation;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.math.BigDecimal;
+import java.nio.channels.Channels;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
 
 /**
  * @author liaochong
@@ -87,6 +121,57 @@ class DefaultStreamExcelBuilderTest extends BasicTest {
         }
     }
 
+    @Test
+    void waitStrategyBuild() throws Exception {
+        try (DefaultStreamExcelBuilder<CommonPeople> excelBuilder = DefaultStreamExcelBuilder.of(CommonPeople.class)
+                .waitQueueSize(8)
+                .waitStrategy(WaitStrategy.YIELD)
+                .threadPool(Executors.newFixedThreadPool(4))
+                .start()) {
+            for (int i = 0; i < 8; i++) {
+                excelBuilder.asyncAppend(this::dataList);
+            }
+            Workbook workbook = excelBuilder.build();
+            Assertions.assertEquals(8 * 1000 + 1, workbook.getSheetAt(0).getLastRowNum());
+        }
+    }
+
+    @Test
+    void batchAppendBuild() throws Exception {
+        try (DefaultStreamExcelBuilder<CommonPeople> excelBuilder = DefaultStreamExcelBuilder.of(CommonPeople.class)
+                .batchSize(64)
+                .start()) {
+            excelBuilder.append(dataList());
+            excelBuilder.append(dataList().get(0));
+            Workbook workbook = excelBuilder.build();
+            Assertions.assertEquals(1000 + 2, workbook.getSheetAt(0).getLastRowNum());
+        }
+    }
+
+    @Test
+    void parallelConvertBuild() throws Exception {
+        List<CommonPeople> dataList = dataList();
+        for (int i = 0; i < dataList.size(); i++) {
+            dataList.get(i).setAge(i);
+        }
+        List<Path> paths = null;
+        try (DefaultStreamExcelBuilder<CommonPeople> excelBuilder = DefaultStreamExcelBuilder.of(CommonPeople.class)
+                .convertParallelism(4)
+                .batchSize(16)
+                .start()) {
+            excelBuilder.append(dataList);
+            paths = excelBuilder.buildAsPaths();
+            try (Workbook workbook = WorkbookFactory.create(paths.get(0).toFile())) {
+                Sheet sheet = workbook.getSheetAt(0);
+                for (int i = 0; i < dataList.size(); i++) {
+                    Assertions.assertEquals(i, (int) sheet.getRow(i + 2).getCell(1).getNumericCellValue());
+                }
+            }
+        } finally {
+            TempFileOperator.deleteTempFiles(paths);
+        }
+    }
+
     @Test
     void customWidthBuild() throws Exception {
         try (DefaultStreamExcelBuilder<CommonPeople> excelBuilder = DefaultStreamExcelBuilder.of(CommonPeople.class)
@@ -164,6 +249,758 @@ class DefaultStreamExcelBuilderTest extends BasicTest {
         }
     }
 
+    @Test
+    void nativeXlsxBuild() throws Exception {
+        List<Path> paths = null;
+        try (DefaultStreamExcelBuilder<CommonPeople> excelBuilder = DefaultStreamExcelBuilder.of(CommonPeople.class)
+                .workbookType(WorkbookType.NATIVE_XLSX)
+                .fixedTitles()
+                .widths(15, 20, 25, 30)
+                .capacity(1000)
+                .start()) {
+            data(excelBuilder, 300);
+            paths = excelBuilder.buildAsPaths();
+            Assertions.assertTrue(paths.size() > 1);
+            for (Path path : paths) {
+                try (Workbook workbook = WorkbookFactory.create(path.toFile())) {
+                    Sheet sheet = workbook.getSheetAt(0);
+                    Assertions.assertTrue(sheet.getPhysicalNumberOfRows() > 1);
+                    Assertions.assertTrue(sheet.getPaneInformation().isFreezePane());
+                }
+            }
+        } finally {
+            TempFileOperator.deleteTempFiles(paths);
+        }
+    }
+
+    @Test
+    void nativeXlsxWorkbookBuild() throws Exception {
+        try (DefaultStreamExcelBuilder<CommonPeople> excelBuilder = DefaultStreamExcelBuilder.of(CommonPeople.class)
+                .workbookType(WorkbookType.NATIVE_XLSX)
+                .fixedTitles()
+                .start()) {
+            data(excelBuilder, 100);
+            try (Workbook workbook = excelBuilder.build()) {
+                Sheet sheet = workbook.getSheetAt(0);
+                Assertions.assertTrue(sheet.getLastRowNum() > 100);
+                Assertions.assertTrue(sheet.getPaneInformation().isFreezePane());
+            }
+        }
+    }
+
+    @Test
+    void nativeXlsxWidthBuild() throws Exception {
+        // 写入行时得到的列宽作用于当前sheet，与POI写入一致
+        Map<WorkbookType, List<Integer>> widths = new HashMap<>();
+        for (WorkbookType workbookType : new WorkbookType[]{WorkbookType.XLSX, WorkbookType.NATIVE_XLSX}) {
+            List<Path> paths = null;
+            try (DefaultStreamExcelBuilder<WidthPeople> excelBuilder = DefaultStreamExcelBuilder.of(WidthPeople.class)
+                    .workbookType(workbookType)
+                    .start()) {
+                for (int i = 0; i < 10; i++) {
+                    WidthPeople people = new WidthPeople();
+                    people.setName("张三" + i);
+                    excelBuilder.append(people);
+                }
+                paths = excelBuilder.buildAsPaths();
+                try (Workbook workbook = WorkbookFactory.create(paths.get(0).toFile())) {
+                    Sheet sheet = workbook.getSheetAt(0);
+                    List<Integer> columnWidths = new ArrayList<>();
+                    for (int i = 0; i < 4; i++) {
+                        columnWidths.add(sheet.getColumnWidth(i));
+                    }
+                    widths.put(workbookType, columnWidths);
+                }
+            } finally {
+                TempFileOperator.deleteTempFiles(paths);
+            }
+        }
+        Assertions.assertEquals(widths.get(WorkbookType.XLSX), widths.get(WorkbookType.NATIVE_XLSX));
+        Assertions.assertEquals(20 << 8, (int) widths.get(WorkbookType.NATIVE_XLSX).get(0));
+    }
+
+    @Test
+    void nativeXlsxUnsupportedBuild() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> DefaultStreamExcelBuilder.of(DropdownPeople.class)
+                .workbookType(WorkbookType.NATIVE_XLSX)
+                .start());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> DefaultStreamExcelBuilder.of(CommonPeople.class)
+                .workbookType(WorkbookType.NATIVE_XLSX)
+                .onStartSheet(sheet -> sheet.setZoom(90))
+                .start());
+        Map<String, List<?>> nameMapping = new HashMap<>();
+        nameMapping.put("gender", Arrays.asList("男", "女"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> DefaultStreamExcelBuilder.of(CommonPeople.class)
+                .workbookType(WorkbookType.NATIVE_XLSX)
+                .nameManager(nameMapping)
+                .start());
+    }
+
+    @Test
+    void nonFiniteNumberBuild() throws Exception {
+        for (WorkbookType workbookType : new WorkbookType[]{WorkbookType.XLSX, WorkbookType.NATIVE_XLSX}) {
+            List<Path> paths = null;
+            try (DefaultStreamExcelBuilder<Map> excelBuilder = DefaultStreamExcelBuilder.of(Map.class)
+                    .workbookType(workbookType)
+                    .fieldDisplayOrder(Arrays.asList("nan", "infinity", "number"))
+                    .start()) {
+                Map<String, Object> data = new HashMap<>();
+                data.put("nan", Double.NaN);
+                data.put("infinity", Double.NEGATIVE_INFINITY);
+                data.put("number", 1.5d);
+                excelBuilder.append(data);
+                paths = excelBuilder.buildAsPaths();
+                try (Workbook workbook = WorkbookFactory.create(paths.get(0).toFile())) {
+                    Row row = workbook.getSheetAt(0).getRow(0);
+                    Assertions.assertEquals(CellType.ERROR, row.getCell(0).getCellType());
+                    Assertions.assertEquals(FormulaError.NUM.getCode(), row.getCell(0).getErrorCellValue());
+                    Assertions.assertEquals(CellType.ERROR, row.getCell(1).getCellType());
+                    Assertions.assertEquals(1.5d, row.getCell(2).getNumericCellValue());
+                }
+            } finally {
+                TempFileOperator.deleteTempFiles(paths);
+            }
+        }
+    }
+
+    @Test
+    void typedNumberBuild() throws Exception {
+        for (WorkbookType workbookType : new WorkbookType[]{WorkbookType.XLSX, WorkbookType.NATIVE_XLSX}) {
+            List<Path> paths = null;
+            try (DefaultStreamExcelBuilder<Person> excelBuilder = DefaultStreamExcelBuilder.of(Person.class)
+                    .workbookType(workbookType)
+                    .start()) {
+                Person person = new Person();
+                person.setName("张三");
+                person.setAge(30);
+                person.setMoney(new BigDecimal("1234567.8912"));
+                excelBuilder.append(person);
+                paths = excelBuilder.buildAsPaths();
+                try (Workbook workbook = WorkbookFactory.create(paths.get(0).toFile())) {
+                    Row row = workbook.getSheetAt(0).getRow(2);
+                    Assertions.assertEquals(30d, row.getCell(1).getNumericCellValue());
+                    Assertions.assertEquals(1234567.8912d, row.getCell(3).getNumericCellValue());
+                }
+            } finally {
+                TempFileOperator.deleteTempFiles(paths);
+            }
+        }
+    }
+
+    @Test
+    void autoMergeBuild() throws Exception {
+        int[] mergedRegionCounts = new int[2];
+        WorkbookType[] workbookTypes = {WorkbookType.XLSX, WorkbookType.NATIVE_XLSX};
+        for (int i = 0; i < workbookTypes.length; i++) {
+            List<Path> paths = null;
+            try (DefaultStreamExcelBuilder<CommonPeople> excelBuilder = DefaultStreamExcelBuilder.of(CommonPeople.class)
+                    .workbookType(workbookTypes[i])
+                    .autoMerge()
+                    .start()) {
+                data(excelBuilder, 200);
+                paths = excelBuilder.buildAsPaths();
+                try (Workbook workbook = WorkbookFactory.create(paths.get(0).toFile())) {
+                    mergedRegionCounts[i] = workbook.getSheetAt(0).getNumMergedRegions();
+                }
+            } finally {
+                TempFileOperator.deleteTempFiles(paths);
+            }
+        }
+        Assertions.assertTrue(mergedRegionCounts[0] > 200);
+        Assertions.assertEquals(mergedRegionCounts[0], mergedRegionCounts[1]);
+    }
+
+    @Test
+    void mergeSameBuild() throws Exception {
+        for (WorkbookType workbookType : new WorkbookType[]{WorkbookType.XLSX, WorkbookType.NATIVE_XLSX}) {
+            List<Path> paths = null;
+            try (DefaultStreamExcelBuilder<MergeSamePeople> excelBuilder = DefaultStreamExcelBuilder.of(MergeSamePeople.class)
+                    .workbookType(workbookType)
+                    .start()) {
+                excelBuilder.append(new MergeSamePeople("研发", 1, "张三"));
+                excelBuilder.append(new MergeSamePeople("研发", 1, "李四"));
+                excelBuilder.append(new MergeSamePeople("研发", 2, "王五"));
+                excelBuilder.append(new MergeSamePeople("市场", 2, "赵六"));
+                excelBuilder.append(new MergeSamePeople("市场", 2, "孙七"));
+                excelBuilder.append(new MergeSamePeople(null, 2, "周八"));
+                paths = excelBuilder.buildAsPaths();
+                try (Workbook workbook = WorkbookFactory.create(paths.get(0).toFile())) {
+                    Sheet sheet = workbook.getSheetAt(0);
+                    List<String> regions = new ArrayList<>();
+                    sheet.getMergedRegions().forEach(region -> regions.add(region.formatAsString()));
+                    regions.sort(String::compareTo);
+                    Assertions.assertEquals(Arrays.asList("A2:A4", "A5:A6", "B2:B3", "B4:B7"), regions);
+                    Assertions.assertEquals("研发", sheet.getRow(1).getCell(0).getStringCellValue());
+                    Assertions.assertEquals("", sheet.getRow(2).getCell(0).getStringCellValue());
+                    Assertions.assertEquals("李四", sheet.getRow(2).getCell(2).getStringCellValue());
+                }
+            } finally {
+                TempFileOperator.deleteTempFiles(paths);
+            }
+        }
+    }
+
+    @Test
+    void dataValidationBuild() throws Exception {
+        List<Path> paths = null;
+        try (DefaultStreamExcelBuilder<DropdownPeople> excelBuilder = DefaultStreamExcelBuilder.of(DropdownPeople.class)
+                .start()) {
+            List<String> genders = Arrays.asList("男", "女");
+            List<String> otherGenders = Arrays.asList("男", "女", "未知");
+            for (int i = 0; i < 1000; i++) {
+                excelBuilder.append(new DropdownPeople("张三" + i, i < 600 ? genders : otherGenders, "备注" + i));
+            }
+            paths = excelBuilder.buildAsPaths();
+            try (Workbook workbook = WorkbookFactory.create(paths.get(0).toFile())) {
+                List<String> regions = new ArrayList<>();
+                workbook.getSheetAt(0).getDataValidations().forEach(validation -> {
+                    for (CellRangeAddress region : validation.getRegions().getCellRangeAddresses()) {
+                        regions.add(region.formatAsString());
+                    }
+                });
+                regions.sort(String::compareTo);
+                // 标题行同样带有提示
+                Assertions.assertEquals(Arrays.asList("B1", "B2:B601", "B602:B1001", "C1:C1001"), regions);
+            }
+        } finally {
+            TempFileOperator.deleteTempFiles(paths);
+        }
+    }
+
+    @Test
+    void promptBuild() throws Exception {
+        // 两种写入输出相同的提示区域
+        for (WorkbookType workbookType : new WorkbookType[]{WorkbookType.XLSX, WorkbookType.NATIVE_XLSX}) {
+            List<Path> paths = null;
+            try (DefaultStreamExcelBuilder<PromptPeople> excelBuilder = DefaultStreamExcelBuilder.of(PromptPeople.class)
+                    .workbookType(workbookType)
+                    .start()) {
+                for (int i = 0; i < 100; i++) {
+                    excelBuilder.append(new PromptPeople("张三" + i, "备注" + i));
+                }
+                paths = excelBuilder.buildAsPaths();
+                try (Workbook workbook = WorkbookFactory.create(paths.get(0).toFile())) {
+                    List<? extends DataValidation> validations = workbook.getSheetAt(0).getDataValidations();
+                    Assertions.assertEquals(1, validations.size());
+                    DataValidation validation = validations.get(0);
+                    Assertions.assertEquals("B1:B101", validation.getRegions().getCellRangeAddress(0).formatAsString());
+                    Assertions.assertEquals("提示", validation.getPromptBoxTitle());
+                    Assertions.assertEquals("请填写备注", validation.getPromptBoxText());
+                }
+            } finally {
+                TempFileOperator.deleteTempFiles(paths);
+            }
+        }
+    }
+
+    @Test
+    void dropdownPerWorkbookBuild() throws Exception {
+        // 相同的下拉选项在每个工作簿中都需写入各自的隐藏sheet
+        for (int i = 0; i < 2; i++) {
+            List<Path> paths = null;
+            try (DefaultStreamExcelBuilder<DropdownPeople> excelBuilder = DefaultStreamExcelBuilder.of(DropdownPeople.class)
+                    .capacity(3)
+                    .start()) {
+                for (int j = 0; j < 4; j++) {
+                    excelBuilder.append(new DropdownPeople("张三" + j, Arrays.asList("男", "女"), null));
+                }
+                paths = excelBuilder.buildAsPaths();
+                Assertions.assertEquals(2, paths.size());
+                for (Path path : paths) {
+                    try (Workbook workbook = WorkbookFactory.create(path.toFile())) {
+                        Sheet hiddenSheet = workbook.getSheet("MyExcel_HiddenDat@List-0");
+                        Assertions.assertNotNull(hiddenSheet);
+                        Assertions.assertEquals(0, hiddenSheet.getLastRowNum());
+                        Assertions.assertEquals("女", hiddenSheet.getRow(0).getCell(1).getStringCellValue());
+                    }
+                }
+            } finally {
+                TempFileOperator.deleteTempFiles(paths);
+            }
+        }
+    }
+
+    @Test
+    void picturePoolBuild() throws Exception {
+        BufferedImage image = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        byte[] bytes = out.toByteArray();
+        for (int prefetch = 0; prefetch <= 2; prefetch += 2) {
+            List<Path> paths = null;
+            DefaultStreamExcelBuilder<ImagePeople> builder = DefaultStreamExcelBuilder.of(ImagePeople.class);
+            if (prefetch > 0) {
+                builder.prefetchImages(prefetch);
+            }
+            try (DefaultStreamExcelBuilder<ImagePeople> excelBuilder = builder.start()) {
+                for (int i = 0; i < 50; i++) {
+                    excelBuilder.append(new ImagePeople("张三" + i, new ByteArrayInputStream(bytes)));
+                }
+                paths = excelBuilder.buildAsPaths();
+                try (Workbook workbook = WorkbookFactory.create(paths.get(0).toFile())) {
+                    // 相同内容的图片仅保存一份
+                    Assertions.assertEquals(1, workbook.getAllPictures().size());
+                    Assertions.assertEquals(51, workbook.getSheetAt(0).getLastRowNum() + 1);
+                }
+            } finally {
+                TempFileOperator.deleteTempFiles(paths);
+            }
+        }
+    }
+
+    @Test
+    void stageShutdownBuild() throws Exception {
+        BufferedImage image = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        byte[] bytes = out.toByteArray();
+        List<Path> paths = null;
+        try (DefaultStreamExcelBuilder<ImagePeople> excelBuilder = DefaultStreamExcelBuilder.of(ImagePeople.class)
+                .prefetchImages(2)
+                .start()) {
+            List<ImagePeople> dataList = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                dataList.add(new ImagePeople("张三" + i, new ByteArrayInputStream(bytes)));
+            }
+            excelBuilder.append(dataList);
+            // 图片预加载不开启并行转换
+            Assertions.assertTrue(awaitThreads("myexcel-image-", true));
+            Assertions.assertTrue(awaitThreads("myexcel-convert-", false));
+            paths = excelBuilder.buildAsPaths();
+            // 构建后即释放线程，无需等待关闭
+            Assertions.assertTrue(awaitThreads("myexcel-image-", false));
+        } finally {
+            TempFileOperator.deleteTempFiles(paths);
+        }
+        try (DefaultStreamExcelBuilder<CommonPeople> excelBuilder = DefaultStreamExcelBuilder.of(CommonPeople.class)
+                .convertParallelism(4)
+                .start()) {
+            excelBuilder.append(dataList());
+            Assertions.assertTrue(awaitThreads("myexcel-convert-", true));
+            paths = excelBuilder.buildAsPaths();
+            Assertions.assertTrue(awaitThreads("myexcel-convert-", false));
+        } finally {
+            TempFileOperator.deleteTempFiles(paths);
+        }
+    }
+
+    @Test
+    void buildToStreamBuild() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DefaultStreamExcelBuilder<WidthPeople> excelBuilder = DefaultStreamExcelBuilder.of(WidthPeople.class)
+                .start()) {
+            for (int i = 0; i < 100; i++) {
+                WidthPeople people = new WidthPeople();
+                people.setName("张三" + i);
+                excelBuilder.append(people);
+            }
+            excelBuilder.buildTo(out);
+        }
+        try (Workbook workbook = WorkbookFactory.create(new ByteArrayInputStream(out.toByteArray()))) {
+            Assertions.assertEquals(101, workbook.getSheetAt(0).getLastRowNum() + 1);
+        }
+        // 多个文件时以zip格式写入
+        out = new ByteArrayOutputStream();
+        try (DefaultStreamExcelBuilder<WidthPeople> excelBuilder = DefaultStreamExcelBuilder.of(WidthPeople.class)
+                .capacity(51)
+                .start()) {
+            for (int i = 0; i < 100; i++) {
+                WidthPeople people = new WidthPeople();
+                people.setName("张三" + i);
+                excelBuilder.append(people);
+            }
+            excelBuilder.writeTo(Channels.newChannel(out));
+        }
+        int entryCount = 0;
+        try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            while (zipInputStream.getNextEntry() != null) {
+                entryCount++;
+            }
+        }
+        Assertions.assertEquals(2, entryCount);
+    }
+
+    @Test
+    void compressionBuild() throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        Path zip = null;
+        try (DefaultStreamExcelBuilder<WidthPeople> excelBuilder = DefaultStreamExcelBuilder.of(WidthPeople.class)
+                .capacity(101)
+                .compression(new CompressionProfile(Deflater.BEST_SPEED, true, executorService))
+                .start()) {
+            for (int i = 0; i < 300; i++) {
+                WidthPeople people = new WidthPeople();
+                people.setName("张三" + i);
+                excelBuilder.append(people);
+            }
+            zip = excelBuilder.buildAsZip("compression");
+            try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+                List<? extends ZipEntry> entries = Collections.list(zipFile.entries());
+                Assertions.assertEquals(3, entries.size());
+                for (int i = 0; i < entries.size(); i++) {
+                    Assertions.assertEquals("compression (" + (i + 1) + ").xlsx", entries.get(i).getName());
+                    try (Workbook workbook = WorkbookFactory.create(zipFile.getInputStream(entries.get(i)))) {
+                        Assertions.assertEquals(101, workbook.getSheetAt(0).getLastRowNum() + 1);
+                    }
+                }
+            }
+        } finally {
+            TempFileOperator.deleteTempFile(zip);
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    void storedZipBuild() throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        Path zip = null;
+        try (DefaultStreamExcelBuilder<WidthPeople> excelBuilder = DefaultStreamExcelBuilder.of(WidthPeople.class)
+                .capacity(101)
+                .threadPool(executorService)
+                .compression(CompressionProfile.STORED)
+                .start()) {
+            for (int i = 0; i < 300; i++) {
+                WidthPeople people = new WidthPeople();
+                people.setName("张三" + i);
+                excelBuilder.append(people);
+            }
+            zip = excelBuilder.buildAsZip("stored");
+            try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+                List<? extends ZipEntry> entries = Collections.list(zipFile.entries());
+                Assertions.assertEquals(3, entries.size());
+                for (ZipEntry entry : entries) {
+                    Assertions.assertEquals(ZipEntry.STORED, entry.getMethod());
+                    try (Workbook workbook = WorkbookFactory.create(zipFile.getInputStream(entry))) {
+                        Assertions.assertEquals(101, workbook.getSheetAt(0).getLastRowNum() + 1);
+                    }
+                }
+            }
+        } finally {
+            TempFileOperator.deleteTempFile(zip);
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    void schedulerBuild() throws Exception {
+        ExportScheduler scheduler = new ExportScheduler();
+        scheduler.setMaxConcurrency(1);
+        scheduler.setMaxPending(1);
+        try (DefaultStreamExcelBuilder<WidthPeople> first = DefaultStreamExcelBuilder.of(WidthPeople.class).exportScheduler(scheduler).start();
+             DefaultStreamExcelBuilder<WidthPeople> second = DefaultStreamExcelBuilder.of(WidthPeople.class).exportScheduler(scheduler);
+             DefaultStreamExcelBuilder<WidthPeople> third = DefaultStreamExcelBuilder.of(WidthPeople.class).exportScheduler(scheduler)) {
+            // 等待第一个导出开始写入
+            long deadline = System.currentTimeMillis() + 5000;
+            while (scheduler.getActiveCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+            Assertions.assertEquals(1, scheduler.getActiveCount());
+            second.start();
+            // 第二个导出等待第一个完成，第三个超出排队上限
+            Assertions.assertEquals(1, scheduler.getQueueDepth());
+            Assertions.assertThrows(ExcelBuildException.class, third::start);
+            for (DefaultStreamExcelBuilder<WidthPeople> excelBuilder : Arrays.asList(first, second)) {
+                WidthPeople people = new WidthPeople();
+                people.setName("张三");
+                excelBuilder.append(people);
+                List<Path> paths = excelBuilder.buildAsPaths();
+                Assertions.assertEquals(1, paths.size());
+            }
+            Assertions.assertEquals(0, scheduler.getQueueDepth());
+        }
+    }
+
+    @Test
+    void abandonedBuild() throws Exception {
+        ExportScheduler scheduler = new ExportScheduler();
+        scheduler.setMaxConcurrency(1);
+        startAbandoned(scheduler);
+        // 被丢弃的导出回收后释放写入线程
+        long deadline = System.currentTimeMillis() + 10000;
+        while (scheduler.getActiveCount() > 0 && System.currentTimeMillis() < deadline) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        Assertions.assertEquals(0, scheduler.getActiveCount());
+        try (DefaultStreamExcelBuilder<WidthPeople> excelBuilder = DefaultStreamExcelBuilder.of(WidthPeople.class)
+                .exportScheduler(scheduler)
+                .start()) {
+            WidthPeople people = new WidthPeople();
+            people.setName("张三");
+            excelBuilder.append(people);
+            Assertions.assertEquals(1, excelBuilder.buildAsPaths().size());
+        }
+    }
+
+    private static void startAbandoned(ExportScheduler scheduler) throws Exception {
+        DefaultStreamExcelBuilder<WidthPeople> excelBuilder = DefaultStreamExcelBuilder.of(WidthPeople.class)
+                .exportScheduler(scheduler)
+                .start();
+        WidthPeople people = new WidthPeople();
+        people.setName("张三");
+        excelBuilder.append(people);
+        excelBuilder.appendAsync(Collections.singletonList(people)).toCompletableFuture().join();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (scheduler.getActiveCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        Assertions.assertEquals(1, scheduler.getActiveCount());
+    }
+
+    @Test
+    void memoryBudgetBuild() throws Exception {
+        MemoryGovernor governor = MemoryGovernor.getInstance();
+        long budget = 64 * 1024;
+        governor.setBudget(budget);
+        AtomicLong maxUsed = new AtomicLong();
+        AtomicBoolean sampling = new AtomicBoolean(true);
+        Thread sampler = new Thread(() -> {
+            while (sampling.get()) {
+                maxUsed.accumulateAndGet(governor.getUsedBytes(), Math::max);
+            }
+        });
+        sampler.start();
+        try (DefaultStreamExcelBuilder<WidthPeople> excelBuilder = DefaultStreamExcelBuilder.of(WidthPeople.class)
+                .batchSize(10)
+                .start()) {
+            List<WidthPeople> dataList = new ArrayList<>();
+            for (int i = 0; i < 3000; i++) {
+                WidthPeople people = new WidthPeople();
+                people.setName("张三" + i);
+                people.setAge(i);
+                people.setMoney(BigDecimal.valueOf(i));
+                dataList.add(people);
+            }
+            excelBuilder.append(dataList);
+            List<Path> paths = excelBuilder.buildAsPaths();
+            Assertions.assertEquals(1, paths.size());
+        } finally {
+            sampling.set(false);
+            sampler.join();
+            governor.setBudget(Long.MAX_VALUE);
+        }
+        Assertions.assertTrue(maxUsed.get() > 0);
+        Assertions.assertTrue(maxUsed.get() <= budget);
+        Assertions.assertEquals(0, governor.getUsedBytes());
+        Assertions.assertEquals(0, governor.getWaitingCount());
+    }
+
+    @Test
+    void appendAsyncBuild() throws Exception {
+        try (DefaultStreamExcelBuilder<WidthPeople> excelBuilder = DefaultStreamExcelBuilder.of(WidthPeople.class)
+                .waitQueueSize(1)
+                .batchSize(10)
+                .start()) {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                List<WidthPeople> dataList = new ArrayList<>();
+                for (int j = 0; j < 20; j++) {
+                    WidthPeople people = new WidthPeople();
+                    people.setName("张三" + (i * 20 + j));
+                    dataList.add(people);
+                }
+                futures.add(excelBuilder.appendAsync(dataList).toCompletableFuture());
+            }
+            // 仍有未放入缓冲区的数据时不允许越过
+            if (!futures.get(futures.size() - 1).isDone()) {
+                Assertions.assertFalse(excelBuilder.tryAppend(Collections.singletonList(new WidthPeople())));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+            WidthPeople last = new WidthPeople();
+            last.setName("张三1000");
+            while (!excelBuilder.tryAppend(Collections.singletonList(last))) {
+                Thread.sleep(1);
+            }
+            List<Path> paths = excelBuilder.buildAsPaths();
+            Assertions.assertEquals(1, paths.size());
+            try (Workbook workbook = WorkbookFactory.create(paths.get(0).toFile())) {
+                Sheet sheet = workbook.getSheetAt(0);
+                Assertions.assertEquals(1001, sheet.getLastRowNum());
+                for (int i = 1; i <= 1001; i++) {
+                    Assertions.assertEquals("张三" + (i - 1), sheet.getRow(i).getCell(0).getStringCellValue());
+                }
+            }
+        }
+    }
+
+    @Test
+    void tryAppendFullBuild() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        DefaultStreamExcelBuilder<CountingPeople> excelBuilder = DefaultStreamExcelBuilder.of(CountingPeople.class)
+                .waitQueueSize(2)
+                .batchSize(1)
+                .onStartSheet(sheet -> {
+                    blocked.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                })
+                .start();
+        try {
+            Assertions.assertTrue(blocked.await(10, TimeUnit.SECONDS));
+            CountingPeople people = new CountingPeople();
+            people.setName("张三");
+            int accepted = 0;
+            while (excelBuilder.tryAppend(Collections.singletonList(people))) {
+                accepted++;
+            }
+            Assertions.assertTrue(accepted > 0);
+            // 缓冲区已满时不再转换数据
+            int readCount = CountingPeople.READ_COUNT.get();
+            Assertions.assertFalse(excelBuilder.tryAppend(Collections.singletonList(people)));
+            Assertions.assertEquals(readCount, CountingPeople.READ_COUNT.get());
+        } finally {
+            release.countDown();
+            excelBuilder.cancel();
+        }
+        // 取消后的数据已被丢弃
+        Assertions.assertFalse(excelBuilder.tryAppend(Collections.singletonList(new CountingPeople())));
+    }
+
+    @Test
+    void mixedAppendBuild() throws Exception {
+        for (int convertParallelism : new int[]{1, 4}) {
+            try (DefaultStreamExcelBuilder<WidthPeople> excelBuilder = DefaultStreamExcelBuilder.of(WidthPeople.class)
+                    .waitQueueSize(2)
+                    .batchSize(10)
+                    .convertParallelism(convertParallelism)
+                    .start()) {
+                int count = 0;
+                for (int i = 0; i < 30; i++) {
+                    List<WidthPeople> dataList = new ArrayList<>();
+                    for (int j = 0; j < 20; j++) {
+                        WidthPeople people = new WidthPeople();
+                        people.setName("张三" + count++);
+                        dataList.add(people);
+                    }
+                    if (i % 3 == 0) {
+                        excelBuilder.appendAsync(dataList);
+                    } else if (i % 3 == 1) {
+                        excelBuilder.append(dataList);
+                    } else {
+                        dataList.forEach(excelBuilder::append);
+                    }
+                }
+                List<Path> paths = excelBuilder.buildAsPaths();
+                try (Workbook workbook = WorkbookFactory.create(paths.get(0).toFile())) {
+                    Sheet sheet = workbook.getSheetAt(0);
+                    Assertions.assertEquals(count, sheet.getLastRowNum());
+                    for (int i = 1; i <= count; i++) {
+                        Assertions.assertEquals("张三" + (i - 1), sheet.getRow(i).getCell(0).getStringCellValue());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void publisherBuild() throws Exception {
+        TestPublisher<WidthPeople> publisher = new TestPublisher<>(1000, i -> {
+            WidthPeople people = new WidthPeople();
+            people.setName("张三" + i);
+            return people;
+        });
+        try (DefaultStreamExcelBuilder<WidthPeople> excelBuilder = DefaultStreamExcelBuilder.of(WidthPeople.class)
+                .waitQueueSize(2)
+                .batchSize(10)
+                .start()) {
+            PublisherSink.of(excelBuilder).subscribeTo(publisher).toCompletableFuture().join();
+            // 请求量不超过同时写入中的批次数量
+            Assertions.assertTrue(publisher.getMaxOutstanding() <= 20);
+            List<Path> paths = excelBuilder.buildAsPaths();
+            try (Workbook workbook = WorkbookFactory.create(paths.get(0).toFile())) {
+                Sheet sheet = workbook.getSheetAt(0);
+                Assertions.assertEquals(1000, sheet.getLastRowNum());
+                for (int i = 1; i <= 1000; i++) {
+                    Assertions.assertEquals("张三" + (i - 1), sheet.getRow(i).getCell(0).getStringCellValue());
+                }
+            }
+        }
+    }
+
+    @Test
+    void pagedAppendBuild() throws Exception {
+        AtomicInteger fetching = new AtomicInteger();
+        AtomicInteger maxFetching = new AtomicInteger();
+        PageFetcher<WidthPeople> pageFetcher = pageNo -> {
+            maxFetching.accumulateAndGet(fetching.incrementAndGet(), Math::max);
+            try {
+                // 越靠前的页越慢，验证按页码顺序追加
+                Thread.sleep(30 - pageNo);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                fetching.decrementAndGet();
+            }
+            if (pageNo > 20) {
+                return Collections.emptyList();
+            }
+            List<WidthPeople> page = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                WidthPeople people = new WidthPeople();
+                people.setName("张三" + ((pageNo - 1) * 50 + i));
+                page.add(people);
+            }
+            return page;
+        };
+        try (DefaultStreamExcelBuilder<WidthPeople> excelBuilder = DefaultStreamExcelBuilder.of(WidthPeople.class)
+                .start()) {
+            excelBuilder.pagedAppend(pageFetcher, 4);
+            Assertions.assertTrue(maxFetching.get() <= 4);
+            List<Path> paths = excelBuilder.buildAsPaths();
+            try (Workbook workbook = WorkbookFactory.create(paths.get(0).toFile())) {
+                Sheet sheet = workbook.getSheetAt(0);
+                Assertions.assertEquals(1000, sheet.getLastRowNum());
+                for (int i = 1; i <= 1000; i++) {
+                    Assertions.assertEquals("张三" + (i - 1), sheet.getRow(i).getCell(0).getStringCellValue());
+                }
+            }
+        }
+    }
+
+    @Test
+    void pagedAppendFailureBuild() throws Exception {
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch interrupted = new CountDownLatch(2);
+        PageFetcher<WidthPeople> pageFetcher = pageNo -> {
+            if (pageNo == 2) {
+                // 第3、4页开始获取后再失败
+                try {
+                    started.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IllegalStateException("page 2");
+            }
+            if (pageNo > 2) {
+                if (pageNo <= 4) {
+                    started.countDown();
+                }
+                try {
+                    Thread.sleep(10000);
+                } catch (InterruptedException e) {
+                    if (pageNo <= 4) {
+                        interrupted.countDown();
+                    }
+                }
+                return Collections.emptyList();
+            }
+            WidthPeople people = new WidthPeople();
+            people.setName("张三");
+            return Collections.singletonList(people);
+        };
+        try (DefaultStreamExcelBuilder<WidthPeople> excelBuilder = DefaultStreamExcelBuilder.of(WidthPeople.class)
+                .start()) {
+            ExcelBuildException e = Assertions.assertThrows(ExcelBuildException.class, () -> excelBuilder.pagedAppend(pageFetcher, 4));
+            Assertions.assertEquals("page 2", e.getCause().getMessage());
+            // 获取中的后续页被中断
+            Assertions.assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        }
+    }
+
     @Test
     void bigBuild() throws Exception {
         try (DefaultStreamExcelBuilder<CommonPeople> excelBuilder = DefaultStreamExcelBuilder.of(CommonPeople.class)
@@ -317,6 +1154,21 @@ class DefaultStreamExcelBuilderTest extends BasicTest {
         }
     }
 
+    private static boolean awaitThreads(String namePrefix, boolean alive) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (true) {
+            boolean found = Thread.getAllStackTraces().keySet().stream()
+                    .anyMatch(thread -> thread.isAlive() && thread.getName().startsWith(namePrefix));
+            if (found == alive) {
+                return true;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+    }
+
     private List<CommonPeople> dataList() {
         BigDecimal oddMoney = new BigDecimal(109898);
         BigDecimal evenMoney = new BigDecimal(66666);
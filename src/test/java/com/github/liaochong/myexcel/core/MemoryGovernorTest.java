@@ -0,0 +1,46 @@
+package com.github.liaochong.myexcel.core;
+
+import com.github.liaochong.myexcel.core.parser.Td;
+import com.github.liaochong.myexcel.core.parser.Tr;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author liaochong
+ * @version 1.0
+ */
+class MemoryGovernorTest {
+
+    @Test
+    void estimateSharedStyle() {
+        Map<String, String> style = new HashMap<>();
+        for (int i = 0; i < 10; i++) {
+            style.put("style" + i, "value" + i);
+        }
+        long single = MemoryGovernor.estimate(rows(1, style));
+        long unstyled = MemoryGovernor.estimate(rows(1, Collections.emptyMap()));
+        long styleBytes = single - unstyled;
+        Assertions.assertTrue(styleBytes > 0);
+        // 共享样式在批次内只计一次
+        Assertions.assertEquals(unstyled * 100 + styleBytes, MemoryGovernor.estimate(rows(100, style)));
+    }
+
+    private static List<Tr> rows(int count, Map<String, String> style) {
+        List<Tr> trList = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Tr tr = new Tr(i, 0);
+            Td td = new Td(i, 0);
+            td.content = "张三";
+            td.style = style;
+            tr.tdList = Collections.singletonList(td);
+            trList.add(tr);
+        }
+        return trList;
+    }
+}
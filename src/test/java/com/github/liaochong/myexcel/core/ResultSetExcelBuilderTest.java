@@ -0,0 +1,90 @@
+package com.github.liaochong.myexcel.core;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author liaochong
+ * @version 1.0
+ */
+class ResultSetExcelBuilderTest extends BasicTest {
+
+    @Test
+    void build() throws Exception {
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:result_set_build;DB_CLOSE_DELAY=-1")) {
+            this.prepareData(connection, 1000);
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("select id, name, money, score, vip, birthday, created from people order by id");
+                 DefaultStreamExcelBuilder<Map> excelBuilder = DefaultStreamExcelBuilder.of(Map.class)) {
+                ResultSetExcelBuilder.of(excelBuilder).fetchSize(100).append(resultSet);
+                List<Path> paths = excelBuilder.buildAsPaths();
+                Assertions.assertEquals(1, paths.size());
+                try (Workbook workbook = WorkbookFactory.create(paths.get(0).toFile())) {
+                    Sheet sheet = workbook.getSheetAt(0);
+                    Assertions.assertEquals(1000, sheet.getLastRowNum());
+                    Assertions.assertEquals("ID", sheet.getRow(0).getCell(0).getStringCellValue());
+                    Assertions.assertEquals("CREATED", sheet.getRow(0).getCell(6).getStringCellValue());
+                    Row row = sheet.getRow(2);
+                    Assertions.assertEquals(CellType.NUMERIC, row.getCell(0).getCellType());
+                    Assertions.assertEquals(1, row.getCell(0).getNumericCellValue());
+                    Assertions.assertEquals("张三1", row.getCell(1).getStringCellValue());
+                    Assertions.assertEquals(101.5, row.getCell(2).getNumericCellValue());
+                    Assertions.assertEquals(0.5, row.getCell(3).getNumericCellValue());
+                    Assertions.assertEquals(CellType.BOOLEAN, row.getCell(4).getCellType());
+                    Assertions.assertFalse(row.getCell(4).getBooleanCellValue());
+                    Assertions.assertEquals(LocalDate.of(2020, 1, 2).atStartOfDay(), row.getCell(5).getLocalDateTimeCellValue());
+                    Assertions.assertEquals(LocalDateTime.of(2020, 1, 1, 8, 1, 0), row.getCell(6).getLocalDateTimeCellValue());
+                    // 空值不写入内容
+                    Cell nullScore = sheet.getRow(1).getCell(3);
+                    Assertions.assertTrue(nullScore == null || nullScore.getCellType() == CellType.BLANK
+                            || nullScore.getStringCellValue().isEmpty());
+                }
+            }
+        }
+    }
+
+    private void prepareData(Connection connection, int size) throws Exception {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table people (id bigint primary key, name varchar(32), money decimal(12, 2), "
+                    + "score double, vip boolean, birthday date, created timestamp)");
+        }
+        try (PreparedStatement statement = connection.prepareStatement("insert into people values (?, ?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < size; i++) {
+                statement.setLong(1, i);
+                statement.setString(2, "张三" + i);
+                statement.setBigDecimal(3, new BigDecimal("100.5").add(BigDecimal.valueOf(i)));
+                if (i % 2 == 0) {
+                    statement.setNull(4, Types.DOUBLE);
+                } else {
+                    statement.setDouble(4, i * 0.5);
+                }
+                statement.setBoolean(5, i % 2 == 0);
+                statement.setDate(6, Date.valueOf(LocalDate.of(2020, 1, 1).plusDays(i)));
+                statement.setTimestamp(7, Timestamp.valueOf(LocalDateTime.of(2020, 1, 1, 8, 0).plusMinutes(i)));
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+}
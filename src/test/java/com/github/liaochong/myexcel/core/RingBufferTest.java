@@ -0,0 +1,39 @@
+package com.github.liaochong.myexcel.core;
+
+import com.github.liaochong.myexcel.core.strategy.WaitStrategy;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author liaochong
+ * @version 1.0
+ */
+class RingBufferTest {
+
+    @Test
+    void capacity() {
+        // 槽位取整为4，可放入数量仍为3
+        RingBuffer<Integer> ringBuffer = new RingBuffer<>(3, WaitStrategy.PARK);
+        Assertions.assertEquals(3, ringBuffer.capacity());
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertTrue(ringBuffer.offer(i));
+        }
+        Assertions.assertFalse(ringBuffer.offer(3));
+        Assertions.assertEquals(0, ringBuffer.poll());
+        Assertions.assertTrue(ringBuffer.offer(3));
+        Assertions.assertFalse(ringBuffer.offer(4));
+        for (int i = 1; i <= 3; i++) {
+            Assertions.assertEquals(i, ringBuffer.poll());
+        }
+        Assertions.assertNull(ringBuffer.poll());
+    }
+
+    @Test
+    void singleCapacity() {
+        RingBuffer<Integer> ringBuffer = new RingBuffer<>(1, WaitStrategy.PARK);
+        Assertions.assertTrue(ringBuffer.offer(0));
+        Assertions.assertFalse(ringBuffer.offer(1));
+        Assertions.assertEquals(0, ringBuffer.poll());
+        Assertions.assertTrue(ringBuffer.offer(1));
+    }
+}
@@ -0,0 +1,58 @@
+package com.github.liaochong.myexcel.core;
+
+import com.github.liaochong.myexcel.core.parser.Td;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+/**
+ * @author liaochong
+ * @version 1.0
+ */
+class RowStagingTest {
+
+    @Test
+    void growBeyondWindow() {
+        RowStaging rowStaging = new RowStaging();
+        // 跨行数超出初始槽位，同一槽位的不同行需扩容
+        for (int row = 1; row <= 40; row++) {
+            rowStaging.add(row, new Td(row, 0));
+        }
+        rowStaging.add(16, new Td(16, 1));
+        for (int row = 1; row <= 40; row++) {
+            List<Td> tds = rowStaging.remove(row);
+            Assertions.assertNotNull(tds);
+            Assertions.assertEquals(row == 16 ? 2 : 1, tds.size());
+            Assertions.assertEquals(row, tds.get(0).row);
+            Assertions.assertNull(rowStaging.remove(row));
+        }
+        Assertions.assertNull(rowStaging.remove(0));
+        rowStaging.add(3, new Td(3, 0));
+        rowStaging.clear();
+        Assertions.assertNull(rowStaging.remove(3));
+    }
+
+    @Test
+    void rowspanLargerThanWindow() throws Exception {
+        StringBuilder html = new StringBuilder("<table><tr><td rowspan=\"40\">合并</td><td>行0</td></tr>");
+        for (int i = 1; i < 40; i++) {
+            html.append("<tr><td>行").append(i).append("</td></tr>");
+        }
+        html.append("<tr><td>尾</td><td>行40</td></tr></table>");
+        try (Workbook workbook = HtmlToExcelFactory.readHtml(html.toString()).build()) {
+            Sheet sheet = workbook.getSheetAt(0);
+            Assertions.assertEquals(1, sheet.getNumMergedRegions());
+            CellRangeAddress region = sheet.getMergedRegion(0);
+            Assertions.assertEquals(0, region.getFirstRow());
+            Assertions.assertEquals(39, region.getLastRow());
+            for (int i = 0; i < 40; i++) {
+                Assertions.assertEquals("行" + i, sheet.getRow(i).getCell(1).getStringCellValue());
+            }
+            Assertions.assertEquals("尾", sheet.getRow(40).getCell(0).getStringCellValue());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * 按需发送指定数量数据的数据源，记录最大未满足请求数
+ *
+ * @author liaochong
+ * @version 1.0
+ */
+public class TestPublisher<T> implements Publisher<T> {
+
+    private final int count;
+
+    private final IntFunction<T> generator;
+
+    private final AtomicLong maxOutstanding = new AtomicLong();
+
+    public TestPublisher(int count, IntFunction<T> generator) {
+        this.count = count;
+        this.generator = generator;
+    }
+
+    public long getMaxOutstanding() {
+        return maxOutstanding.get();
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> subscriber) {
+        AtomicLong requested = new AtomicLong();
+        AtomicInteger wip = new AtomicInteger();
+        int[] emitted = new int[1];
+        subscriber.onSubscribe(new Subscription() {
+            @Override
+            public void request(long n) {
+                maxOutstanding.accumulateAndGet(requested.addAndGet(n), Math::max);
+                if (wip.getAndIncrement() != 0) {
+                    return;
+                }
+                int missed = 1;
+                do {
+                    while (requested.get() > 0 && emitted[0] < count) {
+                        requested.decrementAndGet();
+                        subscriber.onNext(generator.apply(emitted[0]++));
+                    }
+                    if (emitted[0] == count) {
+                        emitted[0]++;
+                        subscriber.onComplete();
+                    }
+                    missed = wip.addAndGet(-missed);
+                } while (missed != 0);
+            }
+
+            @Override
+            public void cancel() {
+                emitted[0] = count + 1;
+            }
+        });
+    }
+}
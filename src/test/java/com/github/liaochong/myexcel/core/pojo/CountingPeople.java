@@ -0,0 +1,40 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core.pojo;
+
+import com.github.liaochong.myexcel.core.annotation.ExcelColumn;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author liaochong
+ * @version 1.0
+ */
+public class CountingPeople {
+
+    public static final AtomicInteger READ_COUNT = new AtomicInteger();
+
+    @ExcelColumn(title = "姓名")
+    private String name;
+
+    public String getName() {
+        READ_COUNT.incrementAndGet();
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+}
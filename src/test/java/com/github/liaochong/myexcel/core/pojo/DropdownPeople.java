@@ -0,0 +1,47 @@
+/*
+ * Copyright 2019 liaochong
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.liaochong.myexcel.core.pojo;
+
+import com.github.liaochong.myexcel.core.annotation.DropdownList;
+import com.github.liaochong.myexcel.core.annotation.ExcelColumn;
+import com.github.liaochong.myexcel.core.annotation.Prompt;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+/**
+ * @author liaochong
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class DropdownPeople {
+
+    @ExcelColumn(title = "姓名", index = 0)
+    String name;
+
+    @ExcelColumn(title = "性别", index = 1, dropdownList = @DropdownList(name = "gender"),
+            prompt = @Prompt(title = "提示", text = "请选择性别"))
+    List<String> gender;
+
+    @ExcelColumn(title = "备注", index = 2, prompt = @Prompt(title = "提示", text = "请填写备注"))
+    String remark;
+}
@@ -0,0 +1,21 @@
+package com.github.liaochong.myexcel.utils;
+
+import lombok.Data;
+
+/**
+ * @author liaochong
+ * @version 1.0
+ */
+@Data
+public class AccessorModel {
+
+    private int count;
+
+    private long total;
+
+    private double rate;
+
+    private boolean enabled;
+
+    private String name;
+}
@@ -0,0 +1,181 @@
+package com.github.liaochong.myexcel.utils;
+
+import com.github.liaochong.myexcel.core.converter.WriteConverterContext;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author liaochong
+ * @version 1.0
+ */
+class FieldAccessorTest {
+
+    @Test
+    void publicClass() throws Exception {
+        AccessorModel model = new AccessorModel();
+        accessor(AccessorModel.class, "count").setInt(model, 1);
+        accessor(AccessorModel.class, "total").setLong(model, 2L);
+        accessor(AccessorModel.class, "rate").setDouble(model, 3.5D);
+        accessor(AccessorModel.class, "enabled").setBoolean(model, true);
+        accessor(AccessorModel.class, "name").set(model, "a");
+        Assertions.assertEquals(1, accessor(AccessorModel.class, "count").get(model));
+        Assertions.assertEquals(2L, accessor(AccessorModel.class, "total").get(model));
+        Assertions.assertEquals(3.5D, accessor(AccessorModel.class, "rate").get(model));
+        Assertions.assertEquals(true, accessor(AccessorModel.class, "enabled").get(model));
+        Assertions.assertEquals("a", accessor(AccessorModel.class, "name").get(model));
+
+        accessor(AccessorModel.class, "count").set(model, 4);
+        Assertions.assertEquals(4, model.getCount());
+    }
+
+    @Test
+    void nonPublicClass() throws Exception {
+        HiddenModel model = new HiddenModel();
+        FieldAccessor count = accessor(HiddenModel.class, "count");
+        count.setInt(model, 1);
+        Assertions.assertEquals(1, count.get(model));
+        count.set(model, 2);
+        Assertions.assertEquals(2, model.getCount());
+
+        FieldAccessor rate = accessor(HiddenModel.class, "rate");
+        rate.setDouble(model, 1.5D);
+        Assertions.assertEquals(1.5D, rate.get(model));
+
+        FieldAccessor name = accessor(HiddenModel.class, "name");
+        name.set(model, "a");
+        Assertions.assertEquals("a", name.get(model));
+    }
+
+    @Test
+    void chainSetter() throws Exception {
+        FieldDefinition fieldDefinition = new FieldDefinition(ChainModel.class.getDeclaredField("name"));
+        fieldDefinition.setSetMethod(ChainModel.class.getMethod("setName", String.class));
+        ChainModel model = new ChainModel();
+        fieldDefinition.getAccessor().set(model, "a");
+        Assertions.assertEquals("a", model.getName());
+        Assertions.assertEquals("a", fieldDefinition.getAccessor().get(model));
+    }
+
+    @Test
+    void finalField() throws Exception {
+        FinalModel model = new FinalModel();
+        FieldAccessor accessor = accessor(FinalModel.class, "name");
+        accessor.set(model, "b");
+        Assertions.assertEquals("b", accessor.get(model));
+    }
+
+    @Test
+    void crossClassLoader() throws Exception {
+        URL location = AccessorModel.class.getProtectionDomain().getCodeSource().getLocation();
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{location}, null)) {
+            Class<?> modelClass = classLoader.loadClass(AccessorModel.class.getName());
+            Assertions.assertNotSame(AccessorModel.class, modelClass);
+            Object model = modelClass.newInstance();
+
+            FieldAccessor count = accessor(modelClass, "count");
+            count.setInt(model, 1);
+            Assertions.assertEquals(1, count.get(model));
+            Assertions.assertEquals(1, modelClass.getMethod("getCount").invoke(model));
+
+            FieldAccessor enabled = accessor(modelClass, "enabled");
+            enabled.setBoolean(model, true);
+            Assertions.assertEquals(true, enabled.get(model));
+
+            FieldAccessor name = accessor(modelClass, "name");
+            name.set(model, "a");
+            Assertions.assertEquals("a", name.get(model));
+        }
+    }
+
+    @Test
+    void parentFields() throws Exception {
+        ParentModel parent = new ParentModel();
+        parent.child = new AccessorModel();
+        parent.child.setName("a");
+        FieldDefinition fieldDefinition = new FieldDefinition(AccessorModel.class.getDeclaredField("name"));
+        List<Field> parentFields = new ArrayList<>();
+        parentFields.add(ParentModel.class.getDeclaredField("child"));
+        fieldDefinition.setParentFields(parentFields);
+        Assertions.assertEquals("a", WriteConverterContext.getFieldValue(fieldDefinition, parent));
+
+        // 原地追加父字段后重新创建访问器
+        GrandParentModel grandParent = new GrandParentModel();
+        grandParent.parent = parent;
+        parentFields.add(0, GrandParentModel.class.getDeclaredField("parent"));
+        Assertions.assertEquals("a", WriteConverterContext.getFieldValue(fieldDefinition, grandParent));
+        grandParent.parent = null;
+        Assertions.assertNull(WriteConverterContext.getFieldValue(fieldDefinition, grandParent));
+    }
+
+    private static FieldAccessor accessor(Class<?> clazz, String fieldName) throws NoSuchFieldException {
+        return new FieldDefinition(clazz.getDeclaredField(fieldName)).getAccessor();
+    }
+
+    static class ParentModel {
+
+        private AccessorModel child;
+    }
+
+    public static class GrandParentModel {
+
+        private ParentModel parent;
+
+        public ParentModel getParent() {
+            return parent;
+        }
+    }
+
+    static class HiddenModel {
+
+        private int count;
+
+        private double rate;
+
+        private String name;
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public double getRate() {
+            return rate;
+        }
+
+        public void setRate(double rate) {
+            this.rate = rate;
+        }
+    }
+
+    public static class ChainModel {
+
+        private String name;
+
+        public String getName() {
+            return name;
+        }
+
+        public ChainModel setName(String name) {
+            this.name = name;
+            return this;
+        }
+    }
+
+    public static class FinalModel {
+
+        private final String name = new String("a");
+
+        public String getName() {
+            return name;
+        }
+    }
+}